@@ -0,0 +1,23 @@
+package saka1029.iterables.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * GCプロファイラを有効にしてベンチマークを実行します。
+ * 引数にはベンチマーク名の正規表現を指定します。省略するとすべて実行します。
+ * 結果のgc.alloc.rate.normが1回あたりの割り当てバイト数です。
+ */
+public class Main {
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+			.include(args.length > 0 ? args[0] : "saka1029.iterables.benchmark.*")
+			.addProfiler(GCProfiler.class)
+			.build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,272 @@
+package saka1029.iterables.benchmark;
+
+import static saka1029.iterables.Iterables.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Iterablesの各演算子を、同等のjava.util.streamのパイプラインおよび単純なループと比較します。
+ * メソッド名の接尾辞は_iterables、_stream、_loopのいずれかです。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OperatorBenchmark {
+
+	@Param({"100", "10000", "1000000"})
+	int size;
+
+	List<Integer> data;
+	List<Integer> half;
+	List<List<Integer>> nested;
+
+	@Setup
+	public void setup() {
+		data = arrayList(range(0, size));
+		Collections.shuffle(data, new java.util.Random(1));
+		half = data.subList(0, size / 2);
+		nested = new ArrayList<>();
+		for (int i = 0; i < size; i += 10)
+			nested.add(data.subList(i, Math.min(i + 10, size)));
+	}
+
+	// map
+
+	@Benchmark
+	public void map_iterables(Blackhole bh) {
+		for (Integer e : map(i -> i + 1, data))
+			bh.consume(e);
+	}
+
+	@Benchmark
+	public void map_stream(Blackhole bh) {
+		data.stream().map(i -> i + 1).forEach(bh::consume);
+	}
+
+	@Benchmark
+	public void map_loop(Blackhole bh) {
+		for (Integer e : data)
+			bh.consume(e + 1);
+	}
+
+	// filter
+
+	@Benchmark
+	public void filter_iterables(Blackhole bh) {
+		for (Integer e : filter(i -> (i & 1) == 0, data))
+			bh.consume(e);
+	}
+
+	@Benchmark
+	public void filter_stream(Blackhole bh) {
+		data.stream().filter(i -> (i & 1) == 0).forEach(bh::consume);
+	}
+
+	@Benchmark
+	public void filter_loop(Blackhole bh) {
+		for (Integer e : data)
+			if ((e & 1) == 0)
+				bh.consume(e);
+	}
+
+	// flatMap
+
+	@Benchmark
+	public void flatMap_iterables(Blackhole bh) {
+		for (Integer e : flatMap(list -> list, nested))
+			bh.consume(e);
+	}
+
+	@Benchmark
+	public void flatMap_stream(Blackhole bh) {
+		nested.stream().flatMap(List::stream).forEach(bh::consume);
+	}
+
+	@Benchmark
+	public void flatMap_loop(Blackhole bh) {
+		for (List<Integer> list : nested)
+			for (Integer e : list)
+				bh.consume(e);
+	}
+
+	// concat
+
+	@Benchmark
+	public void concat_iterables(Blackhole bh) {
+		for (Integer e : concat(half, half))
+			bh.consume(e);
+	}
+
+	@Benchmark
+	public void concat_stream(Blackhole bh) {
+		Stream.concat(half.stream(), half.stream()).forEach(bh::consume);
+	}
+
+	@Benchmark
+	public void concat_loop(Blackhole bh) {
+		for (Integer e : half)
+			bh.consume(e);
+		for (Integer e : half)
+			bh.consume(e);
+	}
+
+	// acumulate
+
+	@Benchmark
+	public void acumulate_iterables(Blackhole bh) {
+		for (Integer e : acumulate(0, Integer::sum, data))
+			bh.consume(e);
+	}
+
+	@Benchmark
+	public void acumulate_loop(Blackhole bh) {
+		int acc = 0;
+		for (Integer e : data)
+			bh.consume(acc += e);
+	}
+
+	// reduce
+
+	@Benchmark
+	public int reduce_iterables() {
+		return reduce(0, Integer::sum, data);
+	}
+
+	@Benchmark
+	public int reduce_stream() {
+		return data.stream().reduce(0, Integer::sum);
+	}
+
+	@Benchmark
+	public int reduce_loop() {
+		int sum = 0;
+		for (Integer e : data)
+			sum += e;
+		return sum;
+	}
+
+	// sort
+
+	@Benchmark
+	public List<Integer> sort_iterables() {
+		return sort(data);
+	}
+
+	@Benchmark
+	public List<Integer> sort_stream() {
+		return data.stream().sorted().collect(Collectors.toList());
+	}
+
+	@Benchmark
+	public List<Integer> sort_loop() {
+		List<Integer> result = new ArrayList<>(data);
+		Collections.sort(result);
+		return result;
+	}
+
+	// top-k
+
+	@Benchmark
+	public List<Integer> topK_iterables() {
+		return topK(10, data);
+	}
+
+	@Benchmark
+	public List<Integer> topK_sortLimit() {
+		return arrayList(limit(10, sort(data)));
+	}
+
+	@Benchmark
+	public List<Integer> topK_sortedLimit() {
+		return arrayList(limit(10, sorted(data)));
+	}
+
+	@Benchmark
+	public List<Integer> topK_stream() {
+		return data.stream().sorted().limit(10).collect(Collectors.toList());
+	}
+
+	// collectors
+
+	@Benchmark
+	public ArrayList<Integer> arrayList_iterables() {
+		return arrayList(range(0, size));
+	}
+
+	@Benchmark
+	public List<Integer> arrayList_stream() {
+		return java.util.stream.IntStream.range(0, size).boxed().collect(Collectors.toList());
+	}
+
+	@Benchmark
+	public List<Integer> arrayList_loop() {
+		List<Integer> result = new ArrayList<>();
+		for (int i = 0; i < size; ++i)
+			result.add(i);
+		return result;
+	}
+
+	@Benchmark
+	public HashSet<Integer> hashSet_iterables() {
+		return hashSet(data);
+	}
+
+	@Benchmark
+	public Set<Integer> hashSet_stream() {
+		return data.stream().collect(Collectors.toSet());
+	}
+
+	@Benchmark
+	public HashMap<Integer, Integer> hashMap_iterables() {
+		return hashMap(i -> i, i -> i + 1, data);
+	}
+
+	@Benchmark
+	public Map<Integer, Integer> hashMap_stream() {
+		return data.stream().collect(Collectors.toMap(i -> i, i -> i + 1));
+	}
+
+	@Benchmark
+	public int[] array_iterables() {
+		return array(data);
+	}
+
+	@Benchmark
+	public int[] array_stream() {
+		return data.stream().mapToInt(i -> i).toArray();
+	}
+
+	@Benchmark
+	public int[] array_loop() {
+		int[] result = new int[data.size()];
+		int i = 0;
+		for (Integer e : data)
+			result[i++] = e;
+		return result;
+	}
+}
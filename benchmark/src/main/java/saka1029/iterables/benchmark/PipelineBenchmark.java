@@ -0,0 +1,86 @@
+package saka1029.iterables.benchmark;
+
+import static saka1029.iterables.Iterables.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import saka1029.iterables.Seq;
+
+/**
+ * map/filterを交互にdepth段重ねたパイプラインのコストを測定します。
+ * filterはすべての要素を通すので、段数によらず要素数は変わりません。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineBenchmark {
+
+	@Param({"1000", "1000000"})
+	int size;
+
+	@Param({"1", "2", "4", "8"})
+	int depth;
+
+	List<Integer> data;
+
+	@Setup
+	public void setup() {
+		data = arrayList(range(0, size));
+	}
+
+	@Benchmark
+	public int pipeline_iterables() {
+		Iterable<Integer> pipeline = data;
+		for (int i = 0; i < depth; ++i)
+			pipeline = (i & 1) == 0 ? map(x -> x + 1, pipeline) : filter(x -> x >= 0, pipeline);
+		return reduce(0, Integer::sum, pipeline);
+	}
+
+	@Benchmark
+	public int pipeline_seq() {
+		Seq<Integer> pipeline = Seq.of(data);
+		for (int i = 0; i < depth; ++i)
+			pipeline = (i & 1) == 0 ? pipeline.map(x -> x + 1) : pipeline.filter(x -> x >= 0);
+		return pipeline.reduce(0, Integer::sum);
+	}
+
+	@Benchmark
+	public int pipeline_stream() {
+		Stream<Integer> pipeline = data.stream();
+		for (int i = 0; i < depth; ++i)
+			pipeline = (i & 1) == 0 ? pipeline.map(x -> x + 1) : pipeline.filter(x -> x >= 0);
+		return pipeline.reduce(0, Integer::sum);
+	}
+
+	@Benchmark
+	public int pipeline_loop() {
+		int sum = 0;
+		loop: for (Integer e : data) {
+			int x = e;
+			for (int i = 0; i < depth; ++i)
+				if ((i & 1) == 0)
+					x = x + 1;
+				else if (x < 0)
+					continue loop;
+			sum += x;
+		}
+		return sum;
+	}
+}
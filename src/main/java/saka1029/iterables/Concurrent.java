@@ -0,0 +1,287 @@
+package saka1029.iterables;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+
+/**
+ * 複数のスレッドから1つのsourceを読み出し、複数のスレッドから1つの結果に書き込むための部品を提供します。
+ * Parallelと違い、スレッドは呼び出し側が用意します。
+ * <pre>
+ * Source&lt;ByteBuffer&gt; lines = Concurrent.source(FileIterables.lines(path));
+ * Sink&lt;Row, ArrayList&lt;Row&gt;&gt; rows = Concurrent.arrayListSink();
+ * for (int i = 0; i &lt; workers; ++i)
+ *     executor.execute(() -> { for (ByteBuffer line : lines) rows.accept(parse(line)); });
+ * // すべてのワーカーの終了を待ってから
+ * ArrayList&lt;Row&gt; result = rows.result();
+ * </pre>
+ */
+public class Concurrent {
+
+	private Concurrent() {}
+
+	public static final int DEFAULT_CHUNK_SIZE = 1024;
+
+	/**
+	 * SUBSIZEDなsourceは、並列度のこの倍数の部分に分割します。
+	 */
+	static final int PIECES_PER_THREAD = 16;
+
+	/**
+	 * 複数のスレッドで分担して読み出すsourceです。
+	 * 各スレッドがiterator()またはspliterator()で取得したワーカーは、共有するsourceから
+	 * 互いに重ならないチャンクを順に受け取って読み出します。すべてのワーカーを合わせると、
+	 * sourceの各要素をちょうど1回ずつ読み出します。チャンクの中の順序は保たれますが、
+	 * チャンクをどのワーカーが受け取るかは決まっていません。
+	 * Sourceは1回しか読み出せません。
+	 */
+	public static final class Source<T> implements Iterable<T> {
+
+		final Supplier<Spliterator<T>> chunks;
+
+		Source(Supplier<Spliterator<T>> chunks) {
+			this.chunks = chunks;
+		}
+
+		/**
+		 * 呼び出したスレッドのワーカーを返します。ワーカー自体はスレッドセーフではありません。
+		 */
+		@Override
+		public Iterator<T> iterator() {
+			return Spliterators.iterator(spliterator());
+		}
+
+		@Override
+		public Spliterator<T> spliterator() {
+			return new WorkerSpliterator<>(chunks);
+		}
+	}
+
+	static class WorkerSpliterator<T> implements Spliterator<T> {
+
+		final Supplier<Spliterator<T>> chunks;
+		Spliterator<T> chunk = null;
+
+		WorkerSpliterator(Supplier<Spliterator<T>> chunks) {
+			this.chunks = chunks;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action) {
+			while (true) {
+				if (chunk == null && (chunk = chunks.get()) == null)
+					return false;
+				if (chunk.tryAdvance(action))
+					return true;
+				chunk = null;
+			}
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super T> action) {
+			if (chunk != null)
+				chunk.forEachRemaining(action);
+			while ((chunk = chunks.get()) != null)
+				chunk.forEachRemaining(action);
+		}
+
+		@Override
+		public Spliterator<T> trySplit() {
+			return null;
+		}
+
+		@Override
+		public long estimateSize() {
+			return Long.MAX_VALUE;
+		}
+
+		@Override
+		public int characteristics() {
+			return 0;
+		}
+	}
+
+	/**
+	 * sourceを複数のスレッドで分担して読み出すSourceを返します。
+	 * <ul>
+	 * <li>RandomAccessなListは、AtomicIntegerの位置をchunkSizeずつ進めて範囲を割り当てます。</li>
+	 * <li>SUBSIZEDなsource(rangeや配列など)は、あらかじめ分割した部分をAtomicIntegerの添字で割り当てます。</li>
+	 * <li>それ以外のsourceは分割できないので、チャンクを取り出すときだけロックして、chunkSize個ずつ配列に読み出します。</li>
+	 * </ul>
+	 * 前の2つはロックを使いません。3つ目もロックするのはchunkSize個に1回です。
+	 */
+	public static <T> Source<T> source(int chunkSize, Iterable<T> source) {
+		if (chunkSize <= 0)
+			throw new IllegalArgumentException("chunkSize must be > 0");
+		if (source instanceof List<T> list && source instanceof RandomAccess)
+			return new Source<>(listChunks(chunkSize, list));
+		Spliterator<T> spliterator = source.spliterator();
+		if (spliterator.hasCharacteristics(Spliterator.SUBSIZED))
+			return new Source<>(splitChunks(chunkSize, spliterator));
+		return new Source<>(lockedChunks(chunkSize, spliterator));
+	}
+
+	public static <T> Source<T> source(Iterable<T> source) {
+		return source(DEFAULT_CHUNK_SIZE, source);
+	}
+
+	static <T> Supplier<Spliterator<T>> listChunks(int chunkSize, List<T> list) {
+		int size = list.size();
+		AtomicInteger cursor = new AtomicInteger();
+		return () -> {
+			int from = cursor.getAndAdd(chunkSize);
+			if (from >= size || from < 0) {
+				cursor.set(size);
+				return null;
+			}
+			return list.subList(from, Math.min(size, from + chunkSize)).spliterator();
+		};
+	}
+
+	static <T> Supplier<Spliterator<T>> splitChunks(int chunkSize, Spliterator<T> spliterator) {
+		long pieces = (long)ForkJoinPool.getCommonPoolParallelism() * PIECES_PER_THREAD;
+		long threshold = Math.max(chunkSize, spliterator.estimateSize() / pieces);
+		List<Spliterator<T>> list = new ArrayList<>();
+		split(spliterator, threshold, list);
+		@SuppressWarnings("unchecked")
+		Spliterator<T>[] array = list.toArray(Spliterator[]::new);
+		AtomicInteger next = new AtomicInteger();
+		return () -> {
+			int i = next.getAndIncrement();
+			if (i >= array.length) {
+				next.set(array.length);
+				return null;
+			}
+			Spliterator<T> chunk = array[i];
+			array[i] = null;
+			return chunk;
+		};
+	}
+
+	static <T> void split(Spliterator<T> spliterator, long threshold, List<Spliterator<T>> pieces) {
+		Spliterator<T> prefix;
+		while (spliterator.estimateSize() > threshold && (prefix = spliterator.trySplit()) != null)
+			split(prefix, threshold, pieces);
+		pieces.add(spliterator);
+	}
+
+	static <T> Supplier<Spliterator<T>> lockedChunks(int chunkSize, Spliterator<T> spliterator) {
+		var state = new Object() { boolean done = false; };
+		return () -> {
+			Object[] buffer = new Object[chunkSize];
+			var acc = new Object() { int size = 0; };
+			synchronized (state) {
+				if (state.done)
+					return null;
+				while (acc.size < chunkSize && spliterator.tryAdvance(e -> buffer[acc.size++] = e))
+					;
+				if (acc.size < chunkSize)
+					state.done = true;
+			}
+			if (acc.size == 0)
+				return null;
+			@SuppressWarnings("unchecked")
+			Spliterator<T> chunk = (Spliterator<T>)Spliterators.spliterator(buffer, 0, acc.size, Spliterator.ORDERED);
+			return chunk;
+		};
+	}
+
+	/**
+	 * 複数のスレッドから要素を受け取って1つの結果にまとめます。
+	 * 各スレッドはそれぞれ専用のコンテナに書き込むので、accept()は同期しません。
+	 * result()はすべてのスレッドのコンテナを結合した結果を返します。
+	 * result()は要素を書き込んだすべてのスレッドの終了を待ってから(Thread.joinや
+	 * ExecutorService.awaitTerminationなどの後で)呼び出してください。
+	 */
+	public static final class Sink<T, R> implements Consumer<T> {
+
+		final Supplier<Object> supplier;
+		final BiConsumer<Object, ? super T> accumulator;
+		final BinaryOperator<Object> combiner;
+		final Function<Object, R> finisher;
+		final ConcurrentLinkedQueue<Object> containers = new ConcurrentLinkedQueue<>();
+		final ThreadLocal<Object> local;
+
+		@SuppressWarnings("unchecked")
+		Sink(Collector<? super T, ?, R> collector) {
+			Collector<T, Object, R> c = (Collector<T, Object, R>)collector;
+			this.supplier = c.supplier();
+			this.accumulator = c.accumulator();
+			this.combiner = c.combiner();
+			this.finisher = c.finisher();
+			this.local = ThreadLocal.withInitial(() -> {
+				Object container = supplier.get();
+				containers.add(container);
+				return container;
+			});
+		}
+
+		@Override
+		public void accept(T t) {
+			accumulator.accept(local.get(), t);
+		}
+
+		/**
+		 * 呼び出したスレッドのコンテナに書き込むConsumerを返します。
+		 * 要素ごとにThreadLocalを参照しないので、ループの外で取得しておくと速くなります。
+		 * 返したConsumerは取得したスレッドでだけ使ってください。
+		 */
+		public Consumer<T> local() {
+			Object container = local.get();
+			return t -> accumulator.accept(container, t);
+		}
+
+		public R result() {
+			Object result = supplier.get();
+			for (Object container : containers)
+				result = combiner.apply(result, container);
+			return finisher.apply(result);
+		}
+	}
+
+	public static <T, R> Sink<T, R> sink(Collector<? super T, ?, R> collector) {
+		return new Sink<>(collector);
+	}
+
+	/**
+	 * 要素をArrayListに集めます。要素の順序はスレッドごとにまとまりますが、スレッド間の順序は決まっていません。
+	 */
+	public static <T> Sink<T, ArrayList<T>> arrayListSink() {
+		return sink(Collector.<T, ArrayList<T>>of(ArrayList::new, ArrayList::add, (a, b) -> {
+			a.addAll(b);
+			return a;
+		}));
+	}
+
+	public static <T> Sink<T, HashSet<T>> hashSetSink() {
+		return sink(Collector.<T, HashSet<T>>of(HashSet::new, HashSet::add, (a, b) -> {
+			a.addAll(b);
+			return a;
+		}));
+	}
+
+	/**
+	 * 要素をHashMapに集めます。同じキーを複数のスレッドが書き込んだ場合、どの値が残るかは決まっていません。
+	 */
+	public static <T, K, V> Sink<T, HashMap<K, V>> hashMapSink(Function<? super T, ? extends K> key,
+			Function<? super T, ? extends V> value) {
+		return sink(Collector.<T, HashMap<K, V>>of(HashMap::new, (m, e) -> m.put(key.apply(e), value.apply(e)), (a, b) -> {
+			a.putAll(b);
+			return a;
+		}));
+	}
+}
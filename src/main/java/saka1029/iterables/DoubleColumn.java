@@ -0,0 +1,95 @@
+package saka1029.iterables;
+
+import java.nio.ByteBuffer;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.DoubleConsumer;
+
+/**
+ * double値をヒープの外に保持する、追加のみ可能な列です。
+ * 何億個もの中間結果を保持してもヒープ(old領域)を圧迫しません。
+ * DoubleIterableでもあるので、コピーせずにそのまま各メソッドのsourceとして渡せます。
+ * spliterator()はSIZEDで、添字の範囲で均等に分割できます。
+ * 読み出し中に要素を追加した場合、その要素が読み出されるかどうかは不定です。
+ * <pre>
+ * DoubleColumn column = DoubleIterables.column(source);
+ * </pre>
+ */
+public class DoubleColumn extends OffHeapColumn implements DoubleIterable {
+
+	public DoubleColumn() {
+		this(DEFAULT_SEGMENT_SHIFT);
+	}
+
+	DoubleColumn(int shift) {
+		super(8, shift);
+	}
+
+	public void add(double value) {
+		ByteBuffer segment = next();
+		segment.putDouble(offset(size), value);
+		++size;
+	}
+
+	public DoubleColumn addAll(DoubleIterable source) {
+		source.spliterator().forEachRemaining((double value) -> add(value));
+		return this;
+	}
+
+	public double get(long index) {
+		checkIndex(index);
+		return segment(index).getDouble(offset(index));
+	}
+
+	class DoubleColumnSpliterator extends SegmentSpliterator<DoubleColumnSpliterator> implements Spliterator.OfDouble {
+
+		DoubleColumnSpliterator(long from, long to) {
+			super(from, to);
+		}
+
+		@Override
+		DoubleColumnSpliterator create(long from, long to) {
+			return new DoubleColumnSpliterator(from, to);
+		}
+
+		@Override
+		public boolean tryAdvance(DoubleConsumer action) {
+			if (from >= to)
+				return false;
+			action.accept(segment(from).getDouble(offset(from)));
+			++from;
+			return true;
+		}
+
+		/**
+		 * セグメントごとにまとめて読み出します。
+		 */
+		@Override
+		public void forEachRemaining(DoubleConsumer action) {
+			long i = from;
+			while (i < to) {
+				ByteBuffer segment = segment(i);
+				long end = Math.min(to, segmentEnd(i));
+				for (int o = offset(i); i < end; ++i, o += 8)
+					action.accept(segment.getDouble(o));
+			}
+			from = to;
+		}
+	}
+
+	@Override
+	public Spliterator.OfDouble spliterator() {
+		return new DoubleColumnSpliterator(0, size);
+	}
+
+	@Override
+	public PrimitiveIterator.OfDouble iterator() {
+		return Spliterators.iterator(spliterator());
+	}
+
+	@Override
+	public String toString() {
+		return "DoubleColumn[size=" + size + "]";
+	}
+}
@@ -0,0 +1,21 @@
+package saka1029.iterables;
+
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+/**
+ * double値をボクシングせずに列挙するIterableです。
+ * Iterable&lt;Double&gt;でもあるので、そのままIterablesの各メソッドに渡すことができます。
+ */
+@FunctionalInterface
+public interface DoubleIterable extends Iterable<Double> {
+
+	@Override
+	PrimitiveIterator.OfDouble iterator();
+
+	@Override
+	default Spliterator.OfDouble spliterator() {
+		return Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED);
+	}
+}
@@ -0,0 +1,239 @@
+package saka1029.iterables;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleFunction;
+import java.util.function.DoublePredicate;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.ToDoubleFunction;
+
+import saka1029.iterables.Iterables.Statistics;
+
+/**
+ * DoubleIterableを生成、変換、集計するメソッドを提供します。
+ * 各メソッドはIterablesの同名のメソッドと同じ意味を持ちますが、要素をボクシングしません。
+ */
+public class DoubleIterables {
+
+	private DoubleIterables() {}
+
+	public static DoubleIterable of(double... elements) {
+		return () -> new PrimitiveIterator.OfDouble() {
+
+			int i = 0;
+
+			@Override
+			public boolean hasNext() {
+				return i < elements.length;
+			}
+
+			@Override
+			public double nextDouble() {
+				if (i >= elements.length)
+					throw new NoSuchElementException();
+				return elements[i++];
+			}
+
+		};
+	}
+
+	/**
+	 * Iterable&lt;Double&gt;をDoubleIterableに変換します。
+	 * sourceがすでにDoubleIterableであればそのまま返します。
+	 */
+	public static DoubleIterable doubles(Iterable<Double> source) {
+		if (source instanceof DoubleIterable doubles)
+			return doubles;
+		return () -> new PrimitiveIterator.OfDouble() {
+
+			final Iterator<Double> iterator = source.iterator();
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public double nextDouble() {
+				return iterator.next();
+			}
+
+		};
+	}
+
+	public static <T> DoubleIterable mapToDouble(ToDoubleFunction<T> mapper, Iterable<T> source) {
+		return () -> new PrimitiveIterator.OfDouble() {
+
+			final Iterator<T> iterator = source.iterator();
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public double nextDouble() {
+				return mapper.applyAsDouble(iterator.next());
+			}
+
+		};
+	}
+
+	public static <U> Iterable<U> mapToObj(DoubleFunction<U> mapper, DoubleIterable source) {
+		return () -> new Iterator<U>() {
+
+			final PrimitiveIterator.OfDouble iterator = source.iterator();
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public U next() {
+				return mapper.apply(iterator.nextDouble());
+			}
+
+		};
+	}
+
+	public static DoubleIterable map(DoubleUnaryOperator mapper, DoubleIterable source) {
+		return () -> new PrimitiveIterator.OfDouble() {
+
+			final PrimitiveIterator.OfDouble iterator = source.iterator();
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public double nextDouble() {
+				return mapper.applyAsDouble(iterator.nextDouble());
+			}
+
+		};
+	}
+
+	public static DoubleIterable filter(DoublePredicate selector, DoubleIterable source) {
+		return () -> new PrimitiveIterator.OfDouble() {
+
+			final PrimitiveIterator.OfDouble iterator = source.iterator();
+			boolean hasNext = advance();
+			double next;
+
+			boolean advance() {
+				while (iterator.hasNext())
+					if (selector.test(next = iterator.nextDouble()))
+						return true;
+				return false;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return hasNext;
+			}
+
+			@Override
+			public double nextDouble() {
+				if (!hasNext)
+					throw new NoSuchElementException();
+				double result = next;
+				hasNext = advance();
+				return result;
+			}
+
+		};
+	}
+
+	public static DoubleIterable skip(int skip, DoubleIterable source) {
+		return () -> {
+			PrimitiveIterator.OfDouble iterator = source.iterator();
+			for (int i = 0; i < skip && iterator.hasNext(); ++i)
+				iterator.nextDouble();
+			return iterator;
+		};
+	}
+
+	public static DoubleIterable limit(int limit, DoubleIterable source) {
+		return () -> new PrimitiveIterator.OfDouble() {
+
+			final PrimitiveIterator.OfDouble iterator = source.iterator();
+			int i = 0;
+
+			@Override
+			public boolean hasNext() {
+				return i < limit && iterator.hasNext();
+			}
+
+			@Override
+			public double nextDouble() {
+				++i;
+				return iterator.nextDouble();
+			}
+
+		};
+	}
+
+	// Terminal operations
+
+	public static double reduce(DoubleBinaryOperator reducer, DoubleIterable source) {
+		PrimitiveIterator.OfDouble iterator = source.iterator();
+		if (!iterator.hasNext())
+			throw new IllegalStateException("empty source");
+		double result = iterator.nextDouble();
+		while (iterator.hasNext())
+			result = reducer.applyAsDouble(result, iterator.nextDouble());
+		return result;
+	}
+
+	public static double reduce(double unit, DoubleBinaryOperator reducer, DoubleIterable source) {
+		for (PrimitiveIterator.OfDouble iterator = source.iterator(); iterator.hasNext();)
+			unit = reducer.applyAsDouble(unit, iterator.nextDouble());
+		return unit;
+	}
+
+	public static int count(DoubleIterable source) {
+		int count = 0;
+		for (PrimitiveIterator.OfDouble iterator = source.iterator(); iterator.hasNext(); iterator.nextDouble())
+			++count;
+		return count;
+	}
+
+	public static double sum(DoubleIterable source) {
+		double sum = 0;
+		for (PrimitiveIterator.OfDouble iterator = source.iterator(); iterator.hasNext();)
+			sum += iterator.nextDouble();
+		return sum;
+	}
+
+	public static double[] array(DoubleIterable source) {
+		double[] result = new double[16];
+		int size = 0;
+		for (PrimitiveIterator.OfDouble iterator = source.iterator(); iterator.hasNext();) {
+			if (size >= result.length)
+				result = Arrays.copyOf(result, size * 2);
+			result[size++] = iterator.nextDouble();
+		}
+		return size == result.length ? result : Arrays.copyOf(result, size);
+	}
+
+	/**
+	 * sourceをヒープの外に保持するDoubleColumnに集めます。
+	 * 結果はDoubleIterableなので、そのまま次の処理のsourceにできます。
+	 */
+	public static DoubleColumn column(DoubleIterable source) {
+		return new DoubleColumn().addAll(source);
+	}
+
+	public static Statistics statistics(DoubleIterable source) {
+		Statistics result = new Statistics();
+		for (PrimitiveIterator.OfDouble iterator = source.iterator(); iterator.hasNext();)
+			result.add(iterator.nextDouble());
+		return result;
+	}
+
+}
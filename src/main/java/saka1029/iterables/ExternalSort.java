@@ -0,0 +1,288 @@
+package saka1029.iterables;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterables.externalSortの実装です。
+ * sourceをrunSize個ずつ読み出して整列し(整列はArrays.parallelSortで並列に行います)、
+ * 整列した各ランを一時ファイルに書き出します。iterator()は各ランを読み出しながら併合します。
+ * ランがmergeWidth個を超える場合は、隣り合うmergeWidth個ずつを1つのランに併合することを
+ * mergeWidth個以下になるまで繰り返すので、同時に開くファイルはmergeWidth個までです。
+ * sourceがrunSize個以下の場合は一時ファイルを使いません。
+ */
+class ExternalSort<T> implements Iterable<T> {
+
+	/**
+	 * 一度に併合するランの最大数です。ランごとに1つのファイルと1つのバッファを使います。
+	 */
+	static final int DEFAULT_MERGE_WIDTH = 64;
+
+	static final int BUFFER_SIZE = 1 << 16;
+
+	final Comparator<T> comparator;
+	final int runSize;
+	final int mergeWidth;
+	final Serializer<T> serializer;
+	final Path directory;
+	final Iterable<T> source;
+
+	ExternalSort(Comparator<T> comparator, int runSize, int mergeWidth, Serializer<T> serializer, Path directory, Iterable<T> source) {
+		if (runSize <= 0)
+			throw new IllegalArgumentException("runSize must be > 0");
+		if (mergeWidth < 2)
+			throw new IllegalArgumentException("mergeWidth must be >= 2");
+		this.comparator = comparator;
+		this.runSize = runSize;
+		this.mergeWidth = mergeWidth;
+		this.serializer = serializer;
+		this.directory = directory;
+		this.source = source;
+	}
+
+	ExternalSort(Comparator<T> comparator, int runSize, Serializer<T> serializer, Path directory, Iterable<T> source) {
+		this(comparator, runSize, DEFAULT_MERGE_WIDTH, serializer, directory, source);
+	}
+
+	record Run(Path path, long size) {}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public Iterator<T> iterator() {
+		Iterator<T> iterator = source.iterator();
+		List<Run> runs = new ArrayList<>();
+		try {
+			while (true) {
+				ArrayList<T> run = new ArrayList<>(Math.min(runSize, 1 << 16));
+				while (run.size() < runSize && iterator.hasNext())
+					run.add(iterator.next());
+				T[] sorted = (T[])run.toArray();
+				run = null;
+				Arrays.parallelSort(sorted, comparator);
+				if (runs.isEmpty() && !iterator.hasNext())
+					return Arrays.asList(sorted).iterator();
+				runs.add(spill(sorted));
+				if (!iterator.hasNext())
+					break;
+			}
+			while (runs.size() > mergeWidth)
+				runs = mergePass(runs);
+		} catch (IOException e) {
+			delete(runs);
+			throw new UncheckedIOException(e);
+		} catch (RuntimeException | Error e) {
+			delete(runs);
+			throw e;
+		}
+		return new SpilledIterator(runs);
+	}
+
+	/**
+	 * ランのファイルを作成します。通常はIteratorを閉じたとき、または参照されなくなったときに削除しますが、
+	 * それまでにJVMが終了した場合に備えてdeleteOnExitにも登録します。
+	 */
+	Path createRunFile() throws IOException {
+		Path path = directory == null ? Files.createTempFile("iterables", ".run")
+			: Files.createTempFile(directory, "iterables", ".run");
+		path.toFile().deleteOnExit();
+		return path;
+	}
+
+	Run spill(T[] sorted) throws IOException {
+		Path path = createRunFile();
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE))) {
+			for (T e : sorted)
+				serializer.write(out, e);
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(path);
+			throw e;
+		}
+		return new Run(path, sorted.length);
+	}
+
+	/**
+	 * 隣り合うmergeWidth個ずつのランを1つのランに併合します。
+	 * 隣り合うランを順に併合するので、同じ順序の要素の順序は保たれます。
+	 * 併合し終えたランのファイルはすぐに削除します。失敗した場合は作成途中のランを削除します。
+	 */
+	List<Run> mergePass(List<Run> runs) throws IOException {
+		List<Run> merged = new ArrayList<>((runs.size() + mergeWidth - 1) / mergeWidth);
+		try {
+			for (int i = 0, size = runs.size(); i < size; i += mergeWidth) {
+				List<Run> group = runs.subList(i, Math.min(size, i + mergeWidth));
+				merged.add(group.size() == 1 ? group.get(0) : merge(group));
+			}
+		} catch (IOException | RuntimeException e) {
+			delete(merged);
+			throw e;
+		}
+		return merged;
+	}
+
+	Run merge(List<Run> group) throws IOException {
+		Path path = createRunFile();
+		long size = 0;
+		List<RunIterator> readers = new ArrayList<>(group.size());
+		try {
+			for (Run run : group)
+				readers.add(new RunIterator(run));
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE))) {
+				Iterator<T> merged = new Iterables.MergeIterator<>(comparator, readers);
+				while (merged.hasNext()) {
+					serializer.write(out, merged.next());
+					++size;
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			closeAll(readers);
+			Files.deleteIfExists(path);
+			throw e;
+		}
+		closeAll(readers);
+		delete(group);
+		return new Run(path, size);
+	}
+
+	/**
+	 * すべてのreaderを閉じます。閉じられなかったreaderがあっても残りを閉じます。
+	 */
+	void closeAll(List<RunIterator> readers) {
+		for (RunIterator reader : readers)
+			closeQuietly(reader.in);
+	}
+
+	static void closeQuietly(DataInputStream in) {
+		try {
+			in.close();
+		} catch (IOException e) {
+			// 閉じられなくても残りのreaderを閉じ、ファイルの削除を続けます。
+		}
+	}
+
+	/**
+	 * ランのファイルを削除します。削除できなかったファイルはdeleteOnExitで削除されます。
+	 */
+	static void delete(List<Run> runs) {
+		for (Run run : runs)
+			try {
+				Files.deleteIfExists(run.path());
+			} catch (IOException e) {
+				// deleteOnExitで削除されます。
+			}
+	}
+
+	/**
+	 * 一時ファイルに書き出したランを順に読み出します。
+	 */
+	class RunIterator implements Iterator<T> {
+
+		final DataInputStream in;
+		long remaining;
+
+		RunIterator(Run run) throws IOException {
+			this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run.path()), BUFFER_SIZE));
+			this.remaining = run.size();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return remaining > 0;
+		}
+
+		@Override
+		public T next() {
+			if (remaining <= 0)
+				throw new NoSuchElementException();
+			try {
+				T result = serializer.read(in);
+				if (--remaining == 0)
+					in.close();
+				return result;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	/**
+	 * SpilledIteratorが開いたファイルです。
+	 * Cleanerから実行するので、SpilledIteratorを参照してはいけません。
+	 */
+	record Resources(List<DataInputStream> streams, List<Run> runs) implements Runnable {
+
+		@Override
+		public void run() {
+			for (DataInputStream in : streams)
+				closeQuietly(in);
+			delete(runs);
+		}
+	}
+
+	/**
+	 * 各ランをIterables.MergeIteratorで併合します。
+	 * すべての要素を読み出すか、close()を呼び出すと一時ファイルを削除します。
+	 * findFirstやlimitなどで途中で読み出しをやめた場合も、Iteratorが参照されなくなれば
+	 * Cleanerがファイルを閉じて削除します。
+	 */
+	class SpilledIterator implements Iterator<T>, AutoCloseable {
+
+		final List<RunIterator> readers = new ArrayList<>();
+		final Iterator<T> merged;
+		final Cleaner.Cleanable cleanable;
+		boolean closed = false;
+
+		SpilledIterator(List<Run> runs) {
+			Resources resources = new Resources(new ArrayList<>(runs.size()), runs);
+			this.cleanable = Iterables.AsyncMapIterator.CLEANER.register(this, resources);
+			try {
+				for (Run run : runs) {
+					RunIterator reader = new RunIterator(run);
+					readers.add(reader);
+					resources.streams().add(reader.in);
+				}
+			} catch (IOException e) {
+				close();
+				throw new UncheckedIOException(e);
+			}
+			this.merged = new Iterables.MergeIterator<>(comparator, new ArrayList<>(readers));
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (closed)
+				return false;
+			if (merged.hasNext())
+				return true;
+			close();
+			return false;
+		}
+
+		@Override
+		public T next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			return merged.next();
+		}
+
+		@Override
+		public void close() {
+			if (closed)
+				return;
+			closed = true;
+			cleanable.clean();
+		}
+	}
+}
@@ -0,0 +1,287 @@
+package saka1029.iterables;
+
+import static saka1029.iterables.IterableSpliterators.splittable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * ファイルの内容をレコード単位で読み出すIterableを提供します。
+ * ファイルはメモリマップして読み出し、各レコードはマップした領域を指すByteBufferのスライスとして返します。
+ * レコードごとにバイト列をコピーしたり、文字列にデコードしたりしません。
+ * 返すIterableは何度でも読み出せます。また、spliterator()はバイト位置で分割できるので、
+ * Parallelで並列に走査できます。
+ * <pre>
+ * long errors = Parallel.common().count(filter(r -> ascii(r).toString().contains("ERROR"), lines(path)));
+ * </pre>
+ * 返したByteBufferはマップした領域を共有しているので、読み出しの後に変更された
+ * ファイルの内容が見えることがあります。
+ */
+public class FileIterables {
+
+	private FileIterables() {}
+
+	/**
+	 * 一度にマップする大きさです。これより長いレコードはマップし直して読み出します。
+	 */
+	static final int WINDOW_SIZE = 1 << 26;
+
+	/**
+	 * これより小さい範囲は分割しません。
+	 */
+	static final long MIN_SPLIT_SIZE = 1 << 16;
+
+	/**
+	 * 改行で区切った行を返します。行末の"\n"および"\r\n"は含みません。
+	 * ファイルの末尾が改行で終わらない場合は、最後の改行以降を1行として返します。
+	 */
+	public static Iterable<ByteBuffer> lines(Path path) {
+		return records(path, new Framing((byte)'\n', 0, true));
+	}
+
+	/**
+	 * delimiterで区切ったレコードを返します。レコードはdelimiterを含みません。
+	 */
+	public static Iterable<ByteBuffer> records(Path path, byte delimiter) {
+		return records(path, new Framing(delimiter, 0, false));
+	}
+
+	/**
+	 * widthバイトの固定長レコードを返します。
+	 * ファイルの大きさがwidthの倍数でない場合、最後のレコードは短くなります。
+	 */
+	public static Iterable<ByteBuffer> records(Path path, int width) {
+		if (width <= 0)
+			throw new IllegalArgumentException("width must be > 0");
+		return records(path, new Framing((byte)0, width, false));
+	}
+
+	static Iterable<ByteBuffer> records(Path path, Framing framing) {
+		return splittable(
+			() -> Spliterators.iterator(new MappedSpliterator(path, framing)),
+			() -> new MappedSpliterator(path, framing));
+	}
+
+	/**
+	 * bufferの各バイトをISO-8859-1の文字とみなすCharSequenceを返します。
+	 * ASCIIのテキストであればデコードせずにそのまま文字列として扱えます。
+	 */
+	public static CharSequence ascii(ByteBuffer buffer) {
+		return new ByteCharSequence(buffer);
+	}
+
+	/**
+	 * bufferをcharsetでデコードした文字列を返します。bufferの位置は変更しません。
+	 */
+	public static String string(ByteBuffer buffer, Charset charset) {
+		return charset.decode(buffer.duplicate()).toString();
+	}
+
+	public static String string(ByteBuffer buffer) {
+		return string(buffer, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * レコードの区切り方です。widthが0より大きい場合は固定長、それ以外はdelimiterで区切ります。
+	 * stripCRがtrueの場合はレコード末尾の'\r'を取り除きます。
+	 */
+	record Framing(byte delimiter, int width, boolean stripCR) {
+
+		boolean fixed() {
+			return width > 0;
+		}
+	}
+
+	static MappedByteBuffer map(Path path, long position, long size) {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	static long size(Path path) {
+		try {
+			return Files.size(path);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * ファイルの[position, end)の範囲から始まるレコードを読み出します。
+	 * 分割した位置がレコードの途中であれば、最初に読み出すときに次のレコードの先頭まで読み飛ばします。
+	 * 境界をまたぐレコードは、そのレコードが始まる側の範囲が読み出します。
+	 * estimateSize()はレコード数ではなく残りのバイト数を返します。
+	 */
+	static class MappedSpliterator implements Spliterator<ByteBuffer> {
+
+		final Path path;
+		final Framing framing;
+		final long fileSize;
+		long position, end;
+		boolean aligned;
+		MappedByteBuffer window = null;
+		long windowStart = 0;
+
+		MappedSpliterator(Path path, Framing framing, long fileSize, long position, long end, boolean aligned) {
+			this.path = path;
+			this.framing = framing;
+			this.fileSize = fileSize;
+			this.position = position;
+			this.end = end;
+			this.aligned = aligned;
+		}
+
+		MappedSpliterator(Path path, Framing framing) {
+			this(path, framing, size(path), 0, Long.MAX_VALUE, true);
+			this.end = fileSize;
+		}
+
+		/**
+		 * positionから少なくともneedバイトを含むようにマップし直します。
+		 * ファイルの末尾までしかマップしません。
+		 */
+		void ensure(long position, long need) {
+			long windowEnd = window == null ? 0 : windowStart + window.limit();
+			long required = Math.min(position + need, fileSize);
+			if (window != null && position >= windowStart && required <= windowEnd)
+				return;
+			long size = Math.min(Math.max(need, WINDOW_SIZE), fileSize - position);
+			if (size > Integer.MAX_VALUE)
+				size = Integer.MAX_VALUE;
+			window = map(path, position, size);
+			windowStart = position;
+		}
+
+		byte byteAt(long p) {
+			ensure(p, 1);
+			return window.get((int)(p - windowStart));
+		}
+
+		/**
+		 * pから始まるレコードの末尾(区切りを含まない)の位置を返します。
+		 */
+		long recordEnd(long p) {
+			if (framing.fixed())
+				return Math.min(p + framing.width(), fileSize);
+			byte delimiter = framing.delimiter();
+			ensure(p, 1);
+			int i = (int)(p - windowStart);
+			while (true) {
+				for (int limit = window.limit(); i < limit; ++i)
+					if (window.get(i) == delimiter)
+						return windowStart + i;
+				long scanned = windowStart + window.limit() - p;
+				if (p + scanned >= fileSize)
+					return fileSize;
+				if (scanned >= Integer.MAX_VALUE)
+					throw new IllegalStateException("record too long at " + p);
+				ensure(p, Math.min(scanned * 2, Integer.MAX_VALUE));
+				i = (int)scanned;
+			}
+		}
+
+		void align() {
+			aligned = true;
+			if (position == 0 || position >= fileSize || byteAt(position - 1) == framing.delimiter())
+				return;
+			long e = recordEnd(position);
+			position = e + 1;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super ByteBuffer> action) {
+			if (!aligned)
+				align();
+			if (position >= end || position >= fileSize)
+				return false;
+			long e = recordEnd(position);
+			ensure(position, e - position);
+			int from = (int)(position - windowStart);
+			int length = (int)(e - position);
+			if (framing.stripCR() && length > 0 && window.get(from + length - 1) == '\r')
+				--length;
+			ByteBuffer record = window.slice(from, length);
+			position = framing.fixed() ? e : e + 1;
+			action.accept(record);
+			return true;
+		}
+
+		@Override
+		public Spliterator<ByteBuffer> trySplit() {
+			if (!aligned)
+				align();
+			long limit = Math.min(end, fileSize);
+			if (limit - position < 2 * MIN_SPLIT_SIZE)
+				return null;
+			long mid = position + (limit - position) / 2;
+			if (framing.fixed())
+				mid = position + (mid - position) / framing.width() * framing.width();
+			if (mid <= position)
+				return null;
+			MappedSpliterator prefix = new MappedSpliterator(path, framing, fileSize, position, mid, true);
+			position = mid;
+			aligned = framing.fixed();
+			window = null;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return Math.max(0, Math.min(end, fileSize) - position);
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | NONNULL | IMMUTABLE;
+		}
+	}
+
+	/**
+	 * ByteBufferの各バイトを1文字とみなすCharSequenceです。
+	 */
+	static class ByteCharSequence implements CharSequence {
+
+		final ByteBuffer buffer;
+
+		ByteCharSequence(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int length() {
+			return buffer.remaining();
+		}
+
+		@Override
+		public char charAt(int index) {
+			if (index < 0 || index >= buffer.remaining())
+				throw new IndexOutOfBoundsException(index);
+			return (char)(buffer.get(buffer.position() + index) & 0xff);
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			if (start < 0 || end > buffer.remaining() || start > end)
+				throw new IndexOutOfBoundsException();
+			return new ByteCharSequence(buffer.slice(buffer.position() + start, end - start));
+		}
+
+		@Override
+		public String toString() {
+			return string(buffer, StandardCharsets.ISO_8859_1);
+		}
+	}
+}
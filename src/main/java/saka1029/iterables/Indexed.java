@@ -0,0 +1,289 @@
+package saka1029.iterables;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+
+/**
+ * 添字で要素を取り出せるIterableです。
+ * range、IntIterables.of、RandomAccessなList、およびそれらにIterables.map、skip、limitを
+ * 適用したものが該当します。Iterables.skipやnthは、先頭から読み飛ばさずに添字で目的の位置に移動します。
+ * size()とget()は呼び出した時点のsourceを反映します。
+ */
+interface Indexed<T> extends Iterable<T> {
+
+	long size();
+
+	T get(long index);
+
+	@Override
+	default Iterator<T> iterator() {
+		return Spliterators.iterator(spliterator());
+	}
+
+	@Override
+	default Spliterator<T> spliterator() {
+		return new IndexedSpliterator<>(this, 0, size(), 0, null);
+	}
+
+	/**
+	 * 範囲を切り出しても変わらない特性です。
+	 */
+	int SLICE_CHARACTERISTICS = Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.NONNULL | Spliterator.IMMUTABLE;
+
+	/**
+	 * sourceを添字で読み出せる場合はIndexedとして返し、それ以外はnullを返します。
+	 */
+	static <T> Indexed<T> of(Iterable<T> source) {
+		if (source instanceof Indexed<T> indexed)
+			return indexed;
+		if (source instanceof List<T> list && source instanceof RandomAccess)
+			return new ListIndexed<>(list);
+		return null;
+	}
+
+	/**
+	 * sourceのoffset番目から最大limit個の要素を返します。
+	 * 負のoffsetは0、負のlimitは0とみなします。
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> Indexed<T> slice(long offset, long limit, Indexed<T> source) {
+		offset = Math.max(0, offset);
+		limit = Math.max(0, limit);
+		if (source instanceof OfInt ints)
+			return (Indexed<T>)slice(offset, limit, ints);
+		if (source instanceof Slice<T> slice)
+			return new Slice<>(slice.offset() + offset, Math.min(limit, Math.max(0, slice.limit() - offset)), slice.source());
+		return new Slice<>(offset, limit, source);
+	}
+
+	static OfInt slice(long offset, long limit, OfInt source) {
+		offset = Math.max(0, offset);
+		limit = Math.max(0, limit);
+		if (source instanceof IntSlice slice)
+			return new IntSlice(slice.offset() + offset, Math.min(limit, Math.max(0, slice.limit() - offset)), slice.source());
+		return new IntSlice(offset, limit, source);
+	}
+
+	static <T, U> Indexed<U> map(Function<T, U> mapper, Indexed<T> source) {
+		return new Mapped<>(mapper, source);
+	}
+
+	record ListIndexed<T>(List<T> list) implements Indexed<T> {
+
+		@Override
+		public long size() {
+			return list.size();
+		}
+
+		@Override
+		public T get(long index) {
+			return list.get(Math.toIntExact(index));
+		}
+	}
+
+	record Slice<T>(long offset, long limit, Indexed<T> source) implements Indexed<T> {
+
+		@Override
+		public long size() {
+			return Math.max(0, Math.min(limit, source.size() - offset));
+		}
+
+		@Override
+		public T get(long index) {
+			return source.get(offset + Objects.checkIndex(index, size()));
+		}
+
+		@Override
+		public Spliterator<T> spliterator() {
+			Spliterator<T> s = source.spliterator();
+			return new IndexedSpliterator<>(this, 0, size(), s.characteristics() & SLICE_CHARACTERISTICS,
+				s.hasCharacteristics(Spliterator.SORTED) ? s.getComparator() : null);
+		}
+	}
+
+	record Mapped<T, U>(Function<T, U> mapper, Indexed<T> source) implements Indexed<U> {
+
+		@Override
+		public long size() {
+			return source.size();
+		}
+
+		@Override
+		public U get(long index) {
+			return mapper.apply(source.get(index));
+		}
+	}
+
+	/**
+	 * fromからtoの手前までの添字の要素を読み出します。
+	 */
+	static class IndexedSpliterator<T> implements Spliterator<T> {
+
+		final Indexed<T> source;
+		long from;
+		final long to;
+		final int characteristics;
+		final Comparator<? super T> comparator;
+
+		IndexedSpliterator(Indexed<T> source, long from, long to, int characteristics, Comparator<? super T> comparator) {
+			this.source = source;
+			this.from = from;
+			this.to = to;
+			this.characteristics = characteristics;
+			this.comparator = comparator;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action) {
+			if (from >= to)
+				return false;
+			action.accept(source.get(from++));
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super T> action) {
+			for (long i = from, end = to; i < end; ++i)
+				action.accept(source.get(i));
+			from = to;
+		}
+
+		@Override
+		public Spliterator<T> trySplit() {
+			long mid = (from + to) >>> 1;
+			if (mid <= from)
+				return null;
+			IndexedSpliterator<T> prefix = new IndexedSpliterator<>(source, from, mid, characteristics, comparator);
+			from = mid;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return to - from;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | SIZED | SUBSIZED | characteristics;
+		}
+
+		@Override
+		public Comparator<? super T> getComparator() {
+			if (!hasCharacteristics(SORTED))
+				throw new IllegalStateException();
+			return comparator;
+		}
+	}
+
+	/**
+	 * int値を添字で取り出せるIndexedです。要素をボクシングせずに読み出せます。
+	 */
+	interface OfInt extends Indexed<Integer>, IntIterable {
+
+		int getInt(long index);
+
+		@Override
+		default Integer get(long index) {
+			return getInt(index);
+		}
+
+		@Override
+		default PrimitiveIterator.OfInt iterator() {
+			return Spliterators.iterator(spliterator());
+		}
+
+		@Override
+		default Spliterator.OfInt spliterator() {
+			return new IntIndexedSpliterator(this, 0, size(), Spliterator.NONNULL, null);
+		}
+	}
+
+	record IntSlice(long offset, long limit, OfInt source) implements OfInt {
+
+		@Override
+		public long size() {
+			return Math.max(0, Math.min(limit, source.size() - offset));
+		}
+
+		@Override
+		public int getInt(long index) {
+			return source.getInt(offset + Objects.checkIndex(index, size()));
+		}
+
+		@Override
+		public Spliterator.OfInt spliterator() {
+			Spliterator.OfInt s = source.spliterator();
+			return new IntIndexedSpliterator(this, 0, size(), s.characteristics() & SLICE_CHARACTERISTICS,
+				s.hasCharacteristics(Spliterator.SORTED) ? s.getComparator() : null);
+		}
+	}
+
+	static class IntIndexedSpliterator implements Spliterator.OfInt {
+
+		final Indexed.OfInt source;
+		long from;
+		final long to;
+		final int characteristics;
+		final Comparator<? super Integer> comparator;
+
+		IntIndexedSpliterator(Indexed.OfInt source, long from, long to, int characteristics, Comparator<? super Integer> comparator) {
+			this.source = source;
+			this.from = from;
+			this.to = to;
+			this.characteristics = characteristics;
+			this.comparator = comparator;
+		}
+
+		@Override
+		public boolean tryAdvance(IntConsumer action) {
+			if (from >= to)
+				return false;
+			action.accept(source.getInt(from++));
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(IntConsumer action) {
+			for (long i = from, end = to; i < end; ++i)
+				action.accept(source.getInt(i));
+			from = to;
+		}
+
+		@Override
+		public Spliterator.OfInt trySplit() {
+			long mid = (from + to) >>> 1;
+			if (mid <= from)
+				return null;
+			IntIndexedSpliterator prefix = new IntIndexedSpliterator(source, from, mid, characteristics, comparator);
+			from = mid;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return to - from;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | SIZED | SUBSIZED | characteristics;
+		}
+
+		@Override
+		public Comparator<? super Integer> getComparator() {
+			if (!hasCharacteristics(SORTED))
+				throw new IllegalStateException();
+			return comparator;
+		}
+	}
+}
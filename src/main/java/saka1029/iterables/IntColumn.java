@@ -0,0 +1,95 @@
+package saka1029.iterables;
+
+import java.nio.ByteBuffer;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.IntConsumer;
+
+/**
+ * int値をヒープの外に保持する、追加のみ可能な列です。
+ * 何億個もの中間結果を保持してもヒープ(old領域)を圧迫しません。
+ * IntIterableでもあるので、コピーせずにそのまま各メソッドのsourceとして渡せます。
+ * spliterator()はSIZEDで、添字の範囲で均等に分割できます。
+ * 読み出し中に要素を追加した場合、その要素が読み出されるかどうかは不定です。
+ * <pre>
+ * IntColumn column = IntIterables.column(source);
+ * </pre>
+ */
+public class IntColumn extends OffHeapColumn implements IntIterable {
+
+	public IntColumn() {
+		this(DEFAULT_SEGMENT_SHIFT);
+	}
+
+	IntColumn(int shift) {
+		super(4, shift);
+	}
+
+	public void add(int value) {
+		ByteBuffer segment = next();
+		segment.putInt(offset(size), value);
+		++size;
+	}
+
+	public IntColumn addAll(IntIterable source) {
+		source.spliterator().forEachRemaining((int value) -> add(value));
+		return this;
+	}
+
+	public int get(long index) {
+		checkIndex(index);
+		return segment(index).getInt(offset(index));
+	}
+
+	class IntColumnSpliterator extends SegmentSpliterator<IntColumnSpliterator> implements Spliterator.OfInt {
+
+		IntColumnSpliterator(long from, long to) {
+			super(from, to);
+		}
+
+		@Override
+		IntColumnSpliterator create(long from, long to) {
+			return new IntColumnSpliterator(from, to);
+		}
+
+		@Override
+		public boolean tryAdvance(IntConsumer action) {
+			if (from >= to)
+				return false;
+			action.accept(segment(from).getInt(offset(from)));
+			++from;
+			return true;
+		}
+
+		/**
+		 * セグメントごとにまとめて読み出します。
+		 */
+		@Override
+		public void forEachRemaining(IntConsumer action) {
+			long i = from;
+			while (i < to) {
+				ByteBuffer segment = segment(i);
+				long end = Math.min(to, segmentEnd(i));
+				for (int o = offset(i); i < end; ++i, o += 4)
+					action.accept(segment.getInt(o));
+			}
+			from = to;
+		}
+	}
+
+	@Override
+	public Spliterator.OfInt spliterator() {
+		return new IntColumnSpliterator(0, size);
+	}
+
+	@Override
+	public PrimitiveIterator.OfInt iterator() {
+		return Spliterators.iterator(spliterator());
+	}
+
+	@Override
+	public String toString() {
+		return "IntColumn[size=" + size + "]";
+	}
+}
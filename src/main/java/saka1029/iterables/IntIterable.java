@@ -0,0 +1,21 @@
+package saka1029.iterables;
+
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+/**
+ * int値をボクシングせずに列挙するIterableです。
+ * Iterable&lt;Integer&gt;でもあるので、そのままIterablesの各メソッドに渡すことができます。
+ */
+@FunctionalInterface
+public interface IntIterable extends Iterable<Integer> {
+
+	@Override
+	PrimitiveIterator.OfInt iterator();
+
+	@Override
+	default Spliterator.OfInt spliterator() {
+		return Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED);
+	}
+}
@@ -0,0 +1,413 @@
+package saka1029.iterables;
+
+import static saka1029.iterables.IterableSpliterators.indexedInt;
+import static saka1029.iterables.IterableSpliterators.splittable;
+import static saka1029.iterables.IterableSpliterators.splittableInt;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ToIntFunction;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+import saka1029.iterables.IterableSpliterators.IntFilterSpliterator;
+import saka1029.iterables.IterableSpliterators.IntFlatMapSpliterator;
+import saka1029.iterables.IterableSpliterators.IntMapSpliterator;
+import saka1029.iterables.IterableSpliterators.MapSpliterator;
+import saka1029.iterables.IterableSpliterators.RangeSpliterator;
+import saka1029.iterables.Iterables.Statistics;
+
+/**
+ * IntIterableを生成、変換、集計するメソッドを提供します。
+ * 各メソッドはIterablesの同名のメソッドと同じ意味を持ちますが、要素をボクシングしません。
+ */
+public class IntIterables {
+
+	private IntIterables() {}
+
+	public static IntIterable of(int... elements) {
+		return indexedInt(() -> new PrimitiveIterator.OfInt() {
+
+			int i = 0;
+
+			@Override
+			public boolean hasNext() {
+				return i < elements.length;
+			}
+
+			@Override
+			public int nextInt() {
+				if (i >= elements.length)
+					throw new NoSuchElementException();
+				return elements[i++];
+			}
+
+		}, () -> Arrays.spliterator(elements), elements.length, i -> elements[(int)i]);
+	}
+
+	/**
+	 * Iterable&lt;Integer&gt;をIntIterableに変換します。
+	 * sourceがすでにIntIterableであればそのまま返します。
+	 */
+	public static IntIterable ints(Iterable<Integer> source) {
+		if (source instanceof IntIterable ints)
+			return ints;
+		return () -> new PrimitiveIterator.OfInt() {
+
+			final Iterator<Integer> iterator = source.iterator();
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public int nextInt() {
+				return iterator.next();
+			}
+
+		};
+	}
+
+	public static <T> IntIterable mapToInt(ToIntFunction<T> mapper, Iterable<T> source) {
+		return () -> new PrimitiveIterator.OfInt() {
+
+			final Iterator<T> iterator = source.iterator();
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public int nextInt() {
+				return mapper.applyAsInt(iterator.next());
+			}
+
+		};
+	}
+
+	/**
+	 * sourceの各要素をint配列に展開します。展開した配列は添字で読み出し、ボクシングもしません。
+	 */
+	public static <T> IntIterable flatMapToInt(Function<? super T, int[]> flatter, Iterable<T> source) {
+		return splittableInt(
+			() -> Spliterators.iterator(new IntFlatMapSpliterator<>(flatter, source.spliterator())),
+			() -> new IntFlatMapSpliterator<>(flatter, source.spliterator()));
+	}
+
+	public static <U> Iterable<U> mapToObj(IntFunction<U> mapper, IntIterable source) {
+		return splittable(() -> new Iterator<U>() {
+
+			final PrimitiveIterator.OfInt iterator = source.iterator();
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public U next() {
+				return mapper.apply(iterator.nextInt());
+			}
+
+		}, () -> new MapSpliterator<Integer, U>(i -> mapper.apply(i), source.spliterator()));
+	}
+
+	public static IntIterable range(int start, int end) {
+		return indexedInt(() -> new PrimitiveIterator.OfInt() {
+
+			int i = start;
+
+			@Override
+			public boolean hasNext() {
+				return i < end;
+			}
+
+			@Override
+			public int nextInt() {
+				if (i >= end)
+					throw new NoSuchElementException();
+				return i++;
+			}
+
+		}, () -> RangeSpliterator.of(start, end, 1), RangeSpliterator.size(start, end, 1), i -> (int)(start + i));
+	}
+
+	public static IntIterable rangeClosed(int start, int end) {
+		return indexedInt(() -> new PrimitiveIterator.OfInt() {
+
+			int i = start;
+			boolean hasNext = start <= end;
+
+			@Override
+			public boolean hasNext() {
+				return hasNext;
+			}
+
+			@Override
+			public int nextInt() {
+				if (!hasNext)
+					throw new NoSuchElementException();
+				hasNext = i < end;
+				return i++;
+			}
+
+		}, () -> RangeSpliterator.of(start, end + 1L, 1), RangeSpliterator.size(start, end + 1L, 1), i -> (int)(start + i));
+	}
+
+	public static IntIterable range(int start, int end, int step) {
+		return indexedInt(() -> new PrimitiveIterator.OfInt() {
+
+			int i = start;
+
+			@Override
+			public boolean hasNext() {
+				return step > 0 ? i < end : i > end;
+			}
+
+			@Override
+			public int nextInt() {
+				int result = i;
+				i += step;
+				return result;
+			}
+
+		}, () -> RangeSpliterator.of(start, end, step), RangeSpliterator.size(start, end, step), i -> (int)(start + i * step));
+	}
+
+	public static IntIterable codePoints(String s) {
+		return splittableInt(() -> new PrimitiveIterator.OfInt() {
+
+			int i = 0;
+
+			@Override
+			public boolean hasNext() {
+				return i < s.length();
+			}
+
+			@Override
+			public int nextInt() {
+				if (i >= s.length())
+					throw new NoSuchElementException();
+				int cp = s.codePointAt(i);
+				i += Character.charCount(cp);
+				return cp;
+			}
+
+		}, () -> s.codePoints().spliterator());
+	}
+
+	public static IntIterable map(IntUnaryOperator mapper, IntIterable source) {
+		return splittableInt(() -> new PrimitiveIterator.OfInt() {
+
+			final PrimitiveIterator.OfInt iterator = source.iterator();
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public int nextInt() {
+				return mapper.applyAsInt(iterator.nextInt());
+			}
+
+		}, () -> new IntMapSpliterator(mapper, source.spliterator()));
+	}
+
+	public static IntIterable filter(IntPredicate selector, IntIterable source) {
+		return splittableInt(() -> new PrimitiveIterator.OfInt() {
+
+			final PrimitiveIterator.OfInt iterator = source.iterator();
+			boolean hasNext = advance();
+			int next;
+
+			boolean advance() {
+				while (iterator.hasNext())
+					if (selector.test(next = iterator.nextInt()))
+						return true;
+				return false;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return hasNext;
+			}
+
+			@Override
+			public int nextInt() {
+				if (!hasNext)
+					throw new NoSuchElementException();
+				int result = next;
+				hasNext = advance();
+				return result;
+			}
+
+		}, () -> new IntFilterSpliterator(selector, source.spliterator()));
+	}
+
+	/**
+	 * sourceが添字で読み出せる場合(rangeやofなど)は、読み飛ばさずにskip番目の位置から読み出します。
+	 */
+	public static IntIterable skip(int skip, IntIterable source) {
+		if (source instanceof Indexed.OfInt indexed)
+			return Indexed.slice(skip, Long.MAX_VALUE, indexed);
+		return () -> {
+			PrimitiveIterator.OfInt iterator = source.iterator();
+			for (int i = 0; i < skip && iterator.hasNext(); ++i)
+				iterator.nextInt();
+			return iterator;
+		};
+	}
+
+	public static IntIterable limit(int limit, IntIterable source) {
+		if (source instanceof Indexed.OfInt indexed)
+			return Indexed.slice(0, limit, indexed);
+		return () -> new PrimitiveIterator.OfInt() {
+
+			final PrimitiveIterator.OfInt iterator = source.iterator();
+			int i = 0;
+
+			@Override
+			public boolean hasNext() {
+				return i < limit && iterator.hasNext();
+			}
+
+			@Override
+			public int nextInt() {
+				++i;
+				return iterator.nextInt();
+			}
+
+		};
+	}
+
+	/**
+	 * sourceをsize個ずつのint配列に分割します。最後の配列はsize個未満になることがあります。
+	 * 各配列は新たに生成します。
+	 */
+	public static Iterable<int[]> chunk(int size, IntIterable source) {
+		if (size <= 0)
+			throw new IllegalArgumentException("size must be > 0");
+		return () -> new Iterator<int[]>() {
+
+			final PrimitiveIterator.OfInt iterator = source.iterator();
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public int[] next() {
+				if (!iterator.hasNext())
+					throw new NoSuchElementException();
+				int[] chunk = new int[size];
+				int n = 0;
+				while (n < size && iterator.hasNext())
+					chunk[n++] = iterator.nextInt();
+				return n == size ? chunk : Arrays.copyOf(chunk, n);
+			}
+
+		};
+	}
+
+	public static IntStream stream(IntIterable source) {
+		return StreamSupport.intStream(source.spliterator(), false);
+	}
+
+	// Terminal operations
+
+	public static int reduce(IntBinaryOperator reducer, IntIterable source) {
+		var acc = new Object() { int result; boolean first = true; };
+		source.spliterator().forEachRemaining((int i) -> {
+			acc.result = acc.first ? i : reducer.applyAsInt(acc.result, i);
+			acc.first = false;
+		});
+		if (acc.first)
+			throw new IllegalStateException("empty source");
+		return acc.result;
+	}
+
+	public static int reduce(int unit, IntBinaryOperator reducer, IntIterable source) {
+		var acc = new Object() { int result = unit; };
+		source.spliterator().forEachRemaining((int i) -> acc.result = reducer.applyAsInt(acc.result, i));
+		return acc.result;
+	}
+
+	public static int count(IntIterable source) {
+		var acc = new Object() { int count = 0; };
+		source.spliterator().forEachRemaining((int i) -> ++acc.count);
+		return acc.count;
+	}
+
+	public static int sum(IntIterable source) {
+		var acc = new Object() { int sum = 0; };
+		source.spliterator().forEachRemaining((int i) -> acc.sum += i);
+		return acc.sum;
+	}
+
+	/**
+	 * sourceをsize個ずつ配列に詰めてbodyに渡します。bodyには配列と有効な要素数を渡します。
+	 * 配列は使い回すので、bodyから戻った後は参照しないでください。
+	 */
+	public static void forEachBatch(int size, ObjIntConsumer<int[]> body, IntIterable source) {
+		if (size <= 0)
+			throw new IllegalArgumentException("size must be > 0");
+		var acc = new Object() { final int[] batch = new int[size]; int n = 0; };
+		source.spliterator().forEachRemaining((int i) -> {
+			acc.batch[acc.n++] = i;
+			if (acc.n >= size) {
+				body.accept(acc.batch, acc.n);
+				acc.n = 0;
+			}
+		});
+		if (acc.n > 0)
+			body.accept(acc.batch, acc.n);
+	}
+
+	public static int[] array(IntIterable source) {
+		Spliterator.OfInt spliterator = source.spliterator();
+		int exact = Iterables.exactSize(spliterator);
+		var acc = new Object() { int[] result = new int[exact >= 0 ? exact : 16]; int size = 0; };
+		spliterator.forEachRemaining((int i) -> {
+			if (acc.size >= acc.result.length)
+				acc.result = Arrays.copyOf(acc.result, Math.max(16, acc.size * 2));
+			acc.result[acc.size++] = i;
+		});
+		return acc.size == acc.result.length ? acc.result : Arrays.copyOf(acc.result, acc.size);
+	}
+
+	/**
+	 * sourceをヒープの外に保持するIntColumnに集めます。
+	 * 結果はIntIterableなので、そのまま次の処理のsourceにできます。
+	 */
+	public static IntColumn column(IntIterable source) {
+		return new IntColumn().addAll(source);
+	}
+
+	public static Statistics statistics(IntIterable source) {
+		Statistics result = new Statistics();
+		source.spliterator().forEachRemaining((int i) -> result.add(i));
+		return result;
+	}
+
+	public static String cpstring(IntIterable source) {
+		Spliterator.OfInt spliterator = source.spliterator();
+		int exact = Iterables.exactSize(spliterator);
+		StringBuilder sb = new StringBuilder(exact >= 0 ? exact : 16);
+		spliterator.forEachRemaining((int cp) -> sb.appendCodePoint(cp));
+		return sb.toString();
+	}
+}
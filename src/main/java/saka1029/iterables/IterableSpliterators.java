@@ -0,0 +1,1485 @@
+package saka1029.iterables;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongToIntFunction;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Iterablesが返すIterableのSpliterator実装です。
+ * iterator()はこれまでどおりのIteratorを返し、spliterator()は分割可能なSpliteratorを返します。
+ */
+class IterableSpliterators {
+
+	private IterableSpliterators() {}
+
+	static final int[] EMPTY_INTS = {};
+
+	static <T> Iterable<T> splittable(Supplier<Iterator<T>> iterator, Supplier<Spliterator<T>> spliterator) {
+		return new Iterable<T>() {
+
+			@Override
+			public Iterator<T> iterator() {
+				return iterator.get();
+			}
+
+			@Override
+			public Spliterator<T> spliterator() {
+				return spliterator.get();
+			}
+
+		};
+	}
+
+	static IntIterable splittableInt(Supplier<PrimitiveIterator.OfInt> iterator, Supplier<Spliterator.OfInt> spliterator) {
+		return new IntIterable() {
+
+			@Override
+			public PrimitiveIterator.OfInt iterator() {
+				return iterator.get();
+			}
+
+			@Override
+			public Spliterator.OfInt spliterator() {
+				return spliterator.get();
+			}
+
+		};
+	}
+
+	/**
+	 * 添字で要素を取り出せるIntIterableを返します。
+	 * iterator()とspliterator()はそれぞれiteratorとspliteratorが返すものを使い、
+	 * Iterables.skipなどはgetで目的の位置に直接移動します。
+	 */
+	static Indexed.OfInt indexedInt(Supplier<PrimitiveIterator.OfInt> iterator, Supplier<Spliterator.OfInt> spliterator,
+			long size, LongToIntFunction get) {
+		return new Indexed.OfInt() {
+
+			@Override
+			public PrimitiveIterator.OfInt iterator() {
+				return iterator.get();
+			}
+
+			@Override
+			public Spliterator.OfInt spliterator() {
+				return spliterator.get();
+			}
+
+			@Override
+			public long size() {
+				return size;
+			}
+
+			@Override
+			public int getInt(long index) {
+				return get.applyAsInt(Objects.checkIndex(index, size));
+			}
+
+		};
+	}
+
+	/**
+	 * start + index * stepをindexがfromからtoの手前まで列挙します。
+	 */
+	static class RangeSpliterator implements Spliterator.OfInt {
+
+		final int start, step;
+		long from;
+		final long to;
+
+		RangeSpliterator(int start, int step, long from, long to) {
+			this.start = start;
+			this.step = step;
+			this.from = from;
+			this.to = to;
+		}
+
+		static RangeSpliterator of(int start, long end, int step) {
+			return new RangeSpliterator(start, step, 0, size(start, end, step));
+		}
+
+		static long size(int start, long end, int step) {
+			if (step == 0)
+				throw new IllegalArgumentException("step must not be zero");
+			long size = step > 0 ? (end - start + step - 1) / step : (start - end - step - 1) / -step;
+			return Math.max(0, size);
+		}
+
+		@Override
+		public boolean tryAdvance(IntConsumer action) {
+			if (from >= to)
+				return false;
+			action.accept((int)(start + from++ * step));
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(IntConsumer action) {
+			for (long i = from, end = to; i < end; ++i)
+				action.accept((int)(start + i * step));
+			from = to;
+		}
+
+		@Override
+		public Spliterator.OfInt trySplit() {
+			long mid = (from + to) >>> 1;
+			if (mid <= from)
+				return null;
+			RangeSpliterator prefix = new RangeSpliterator(start, step, from, mid);
+			from = mid;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return to - from;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | SIZED | SUBSIZED | IMMUTABLE | NONNULL | DISTINCT | (step > 0 ? SORTED : 0);
+		}
+
+		@Override
+		public Comparator<? super Integer> getComparator() {
+			if (step < 0)
+				throw new IllegalStateException();
+			return null;
+		}
+	}
+
+	static class MapSpliterator<T, U> implements Spliterator<U>, Consumer<T> {
+
+		final Function<T, U> mapper;
+		final Spliterator<T> source;
+		Consumer<? super U> action;
+
+		MapSpliterator(Function<T, U> mapper, Spliterator<T> source) {
+			this.mapper = mapper;
+			this.source = source;
+		}
+
+		@Override
+		public void accept(T t) {
+			action.accept(mapper.apply(t));
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super U> action) {
+			this.action = action;
+			return source.tryAdvance(this);
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super U> action) {
+			this.action = action;
+			source.forEachRemaining(this);
+		}
+
+		@Override
+		public Spliterator<U> trySplit() {
+			Spliterator<T> prefix = source.trySplit();
+			return prefix == null ? null : new MapSpliterator<>(mapper, prefix);
+		}
+
+		@Override
+		public long estimateSize() {
+			return source.estimateSize();
+		}
+
+		@Override
+		public int characteristics() {
+			return source.characteristics() & ~(DISTINCT | SORTED | NONNULL);
+		}
+	}
+
+	/**
+	 * tryAdvance()は条件を満たす要素が見つかるまでsourceを進め、見つかった要素だけを渡します。
+	 * Iteratorのように次の要素を先読みしておくことはありません。
+	 */
+	static class FilterSpliterator<T> implements Spliterator<T>, Consumer<T> {
+
+		final Predicate<T> selector;
+		final Spliterator<T> source;
+		Consumer<? super T> action;
+		boolean found;
+
+		FilterSpliterator(Predicate<T> selector, Spliterator<T> source) {
+			this.selector = selector;
+			this.source = source;
+		}
+
+		@Override
+		public void accept(T t) {
+			if (selector.test(t)) {
+				action.accept(t);
+				found = true;
+			}
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action) {
+			this.action = action;
+			found = false;
+			while (!found && source.tryAdvance(this))
+				;
+			return found;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super T> action) {
+			this.action = action;
+			source.forEachRemaining(this);
+		}
+
+		@Override
+		public Spliterator<T> trySplit() {
+			Spliterator<T> prefix = source.trySplit();
+			return prefix == null ? null : new FilterSpliterator<>(selector, prefix);
+		}
+
+		@Override
+		public long estimateSize() {
+			return source.estimateSize();
+		}
+
+		@Override
+		public int characteristics() {
+			return source.characteristics() & ~(SIZED | SUBSIZED);
+		}
+
+		@Override
+		public Comparator<? super T> getComparator() {
+			return source.getComparator();
+		}
+	}
+
+	/**
+	 * すべてのsourceのサイズがわかっていれば、その合計をサイズとして報告します。
+	 */
+	static class ConcatSpliterator<T> implements Spliterator<T> {
+
+		final Spliterator<T>[] spliterators;
+		int index;
+		final int end;
+
+		ConcatSpliterator(Spliterator<T>[] spliterators, int index, int end) {
+			this.spliterators = spliterators;
+			this.index = index;
+			this.end = end;
+		}
+
+		@SafeVarargs
+		static <T> ConcatSpliterator<T> of(Iterable<T>... sources) {
+			@SuppressWarnings({"unchecked", "rawtypes"})
+			Spliterator<T>[] spliterators = new Spliterator[sources.length];
+			for (int i = 0; i < sources.length; ++i)
+				spliterators[i] = sources[i].spliterator();
+			return new ConcatSpliterator<>(spliterators, 0, spliterators.length);
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action) {
+			for (; index < end; ++index)
+				if (spliterators[index].tryAdvance(action))
+					return true;
+			return false;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super T> action) {
+			for (; index < end; ++index)
+				spliterators[index].forEachRemaining(action);
+		}
+
+		@Override
+		public Spliterator<T> trySplit() {
+			if (end - index == 1)
+				return spliterators[index].trySplit();
+			if (end - index < 2)
+				return null;
+			int mid = (index + end) >>> 1;
+			ConcatSpliterator<T> prefix = new ConcatSpliterator<>(spliterators, index, mid);
+			index = mid;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			long size = 0;
+			for (int i = index; i < end; ++i) {
+				size += spliterators[i].estimateSize();
+				if (size < 0)
+					return Long.MAX_VALUE;
+			}
+			return size;
+		}
+
+		@Override
+		public int characteristics() {
+			int characteristics = ORDERED | SIZED | SUBSIZED;
+			for (int i = index; i < end; ++i)
+				characteristics &= spliterators[i].characteristics();
+			if ((characteristics & SIZED) != 0 && estimateSize() == Long.MAX_VALUE)
+				characteristics &= ~(SIZED | SUBSIZED);
+			return characteristics;
+		}
+	}
+
+	static class FlatMapSpliterator<T, U> implements Spliterator<U>, Consumer<T> {
+
+		final Function<T, Iterable<U>> flatter;
+		final Spliterator<T> parent;
+		Spliterator<U> child = null;
+
+		FlatMapSpliterator(Function<T, Iterable<U>> flatter, Spliterator<T> parent) {
+			this.flatter = flatter;
+			this.parent = parent;
+		}
+
+		@Override
+		public void accept(T t) {
+			child = flatter.apply(t).spliterator();
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super U> action) {
+			while (true) {
+				if (child == null && !parent.tryAdvance(this))
+					return false;
+				if (child.tryAdvance(action))
+					return true;
+				child = null;
+			}
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super U> action) {
+			if (child != null)
+				child.forEachRemaining(action);
+			child = null;
+			parent.forEachRemaining(t -> flatter.apply(t).spliterator().forEachRemaining(action));
+		}
+
+		@Override
+		public Spliterator<U> trySplit() {
+			if (child != null)
+				return null;
+			Spliterator<T> prefix = parent.trySplit();
+			return prefix == null ? null : new FlatMapSpliterator<>(flatter, prefix);
+		}
+
+		@Override
+		public long estimateSize() {
+			return Long.MAX_VALUE;
+		}
+
+		@Override
+		public int characteristics() {
+			return parent.characteristics() & ORDERED;
+		}
+	}
+
+	/**
+	 * 親の各要素を配列やListに展開し、添字で読み出します。子の要素ごとにIteratorを作りません。
+	 */
+	static abstract class IndexedFlatMapSpliterator<T, U, C> implements Spliterator<U>, Consumer<T> {
+
+		final Function<? super T, ? extends C> flatter;
+		final Spliterator<T> parent;
+		C child = null;
+		int index = 0, size = 0;
+
+		IndexedFlatMapSpliterator(Function<? super T, ? extends C> flatter, Spliterator<T> parent) {
+			this.flatter = flatter;
+			this.parent = parent;
+		}
+
+		abstract int size(C child);
+
+		abstract U get(C child, int index);
+
+		abstract Spliterator<U> prefix(Spliterator<T> parent);
+
+		@Override
+		public void accept(T t) {
+			child = flatter.apply(t);
+			index = 0;
+			size = size(child);
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super U> action) {
+			while (true) {
+				if (index < size) {
+					action.accept(get(child, index++));
+					return true;
+				}
+				child = null;
+				if (!parent.tryAdvance(this))
+					return false;
+			}
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super U> action) {
+			while (index < size)
+				action.accept(get(child, index++));
+			child = null;
+			parent.forEachRemaining(t -> {
+				C c = flatter.apply(t);
+				for (int i = 0, n = size(c); i < n; ++i)
+					action.accept(get(c, i));
+			});
+		}
+
+		@Override
+		public Spliterator<U> trySplit() {
+			if (index < size)
+				return null;
+			Spliterator<T> prefix = parent.trySplit();
+			return prefix == null ? null : prefix(prefix);
+		}
+
+		@Override
+		public long estimateSize() {
+			return Long.MAX_VALUE;
+		}
+
+		@Override
+		public int characteristics() {
+			return parent.characteristics() & ORDERED;
+		}
+	}
+
+	static class FlatMapArraySpliterator<T, U> extends IndexedFlatMapSpliterator<T, U, U[]> {
+
+		FlatMapArraySpliterator(Function<? super T, ? extends U[]> flatter, Spliterator<T> parent) {
+			super(flatter, parent);
+		}
+
+		@Override
+		int size(U[] child) {
+			return child.length;
+		}
+
+		@Override
+		U get(U[] child, int index) {
+			return child[index];
+		}
+
+		@Override
+		Spliterator<U> prefix(Spliterator<T> parent) {
+			return new FlatMapArraySpliterator<>(flatter, parent);
+		}
+	}
+
+	static class FlatMapListSpliterator<T, U> extends IndexedFlatMapSpliterator<T, U, List<? extends U>> {
+
+		FlatMapListSpliterator(Function<? super T, ? extends List<? extends U>> flatter, Spliterator<T> parent) {
+			super(flatter, parent);
+		}
+
+		@Override
+		int size(List<? extends U> child) {
+			return child.size();
+		}
+
+		@Override
+		U get(List<? extends U> child, int index) {
+			return child.get(index);
+		}
+
+		@Override
+		Spliterator<U> prefix(Spliterator<T> parent) {
+			return new FlatMapListSpliterator<>(flatter, parent);
+		}
+	}
+
+	/**
+	 * Iterables.mapMultiのSpliteratorです。
+	 * tryAdvanceでは親の1要素分の展開結果をbufferに保持します。bufferは使い回します。
+	 */
+	static class MapMultiSpliterator<T, U> implements Spliterator<U>, Consumer<T> {
+
+		final BiConsumer<? super T, ? super Consumer<U>> mapper;
+		final Spliterator<T> parent;
+		final ArrayList<U> buffer = new ArrayList<>();
+		final Consumer<U> emit = buffer::add;
+		int index = 0;
+
+		MapMultiSpliterator(BiConsumer<? super T, ? super Consumer<U>> mapper, Spliterator<T> parent) {
+			this.mapper = mapper;
+			this.parent = parent;
+		}
+
+		@Override
+		public void accept(T t) {
+			buffer.clear();
+			index = 0;
+			mapper.accept(t, emit);
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super U> action) {
+			while (true) {
+				if (index < buffer.size()) {
+					action.accept(buffer.get(index++));
+					return true;
+				}
+				if (!parent.tryAdvance(this)) {
+					buffer.clear();
+					index = 0;
+					return false;
+				}
+			}
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super U> action) {
+			while (index < buffer.size())
+				action.accept(buffer.get(index++));
+			buffer.clear();
+			index = 0;
+			Consumer<U> downstream = action::accept;
+			parent.forEachRemaining(t -> mapper.accept(t, downstream));
+		}
+
+		@Override
+		public Spliterator<U> trySplit() {
+			if (index < buffer.size())
+				return null;
+			Spliterator<T> prefix = parent.trySplit();
+			return prefix == null ? null : new MapMultiSpliterator<>(mapper, prefix);
+		}
+
+		@Override
+		public long estimateSize() {
+			return Long.MAX_VALUE;
+		}
+
+		@Override
+		public int characteristics() {
+			return parent.characteristics() & ORDERED;
+		}
+	}
+
+	/**
+	 * IntIterables.flatMapToIntのSpliteratorです。親の各要素をint配列に展開し、添字で読み出します。
+	 */
+	static class IntFlatMapSpliterator<T> implements Spliterator.OfInt, Consumer<T> {
+
+		final Function<? super T, int[]> flatter;
+		final Spliterator<T> parent;
+		int[] child = EMPTY_INTS;
+		int index = 0;
+
+		IntFlatMapSpliterator(Function<? super T, int[]> flatter, Spliterator<T> parent) {
+			this.flatter = flatter;
+			this.parent = parent;
+		}
+
+		@Override
+		public void accept(T t) {
+			child = flatter.apply(t);
+			index = 0;
+		}
+
+		@Override
+		public boolean tryAdvance(IntConsumer action) {
+			while (true) {
+				if (index < child.length) {
+					action.accept(child[index++]);
+					return true;
+				}
+				child = EMPTY_INTS;
+				index = 0;
+				if (!parent.tryAdvance(this))
+					return false;
+			}
+		}
+
+		@Override
+		public void forEachRemaining(IntConsumer action) {
+			while (index < child.length)
+				action.accept(child[index++]);
+			child = EMPTY_INTS;
+			index = 0;
+			parent.forEachRemaining(t -> {
+				for (int i : flatter.apply(t))
+					action.accept(i);
+			});
+		}
+
+		@Override
+		public Spliterator.OfInt trySplit() {
+			if (index < child.length)
+				return null;
+			Spliterator<T> prefix = parent.trySplit();
+			return prefix == null ? null : new IntFlatMapSpliterator<>(flatter, prefix);
+		}
+
+		@Override
+		public long estimateSize() {
+			return Long.MAX_VALUE;
+		}
+
+		@Override
+		public int characteristics() {
+			return parent.characteristics() & ORDERED;
+		}
+	}
+
+	/**
+	 * sourceがSUBSIZEDであれば、読み飛ばす範囲に含まれる前半部分を捨てながら分割します。
+	 */
+	static class SkipSpliterator<T> implements Spliterator<T> {
+
+		final Spliterator<T> source;
+		long skip;
+
+		SkipSpliterator(long skip, Spliterator<T> source) {
+			this.skip = Math.max(0, skip);
+			this.source = source;
+		}
+
+		void skip() {
+			for (; skip > 0 && source.tryAdvance(t -> {}); --skip)
+				;
+			skip = 0;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action) {
+			skip();
+			return source.tryAdvance(action);
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super T> action) {
+			skip();
+			source.forEachRemaining(action);
+		}
+
+		@Override
+		public Spliterator<T> trySplit() {
+			if (!source.hasCharacteristics(SUBSIZED))
+				return null;
+			Spliterator<T> prefix;
+			while ((prefix = source.trySplit()) != null) {
+				long size = prefix.estimateSize();
+				if (size > skip) {
+					Spliterator<T> result = new SkipSpliterator<>(skip, prefix);
+					skip = 0;
+					return result;
+				}
+				skip -= size;
+			}
+			return null;
+		}
+
+		@Override
+		public long estimateSize() {
+			long size = source.estimateSize();
+			return size == Long.MAX_VALUE ? size : Math.max(0, size - skip);
+		}
+
+		@Override
+		public int characteristics() {
+			return source.characteristics();
+		}
+
+		@Override
+		public Comparator<? super T> getComparator() {
+			return source.getComparator();
+		}
+	}
+
+	/**
+	 * sourceがSUBSIZEDであれば、上限を超える後半部分を捨てながら分割します。
+	 */
+	static class LimitSpliterator<T> implements Spliterator<T> {
+
+		Spliterator<T> source;
+		long remaining;
+
+		LimitSpliterator(long limit, Spliterator<T> source) {
+			this.remaining = limit;
+			this.source = source;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action) {
+			if (remaining <= 0 || !source.tryAdvance(action))
+				return false;
+			--remaining;
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super T> action) {
+			if (source.hasCharacteristics(SIZED) && source.estimateSize() <= remaining) {
+				remaining -= source.estimateSize();
+				source.forEachRemaining(action);
+			} else
+				while (remaining > 0 && source.tryAdvance(action))
+					--remaining;
+		}
+
+		@Override
+		public Spliterator<T> trySplit() {
+			if (remaining <= 0 || !source.hasCharacteristics(SUBSIZED))
+				return null;
+			Spliterator<T> prefix;
+			while ((prefix = source.trySplit()) != null) {
+				long size = prefix.estimateSize();
+				if (size < remaining) {
+					remaining -= size;
+					return prefix;
+				}
+				source = prefix;
+			}
+			return null;
+		}
+
+		@Override
+		public long estimateSize() {
+			return Math.min(remaining, source.estimateSize());
+		}
+
+		@Override
+		public int characteristics() {
+			return source.characteristics();
+		}
+
+		@Override
+		public Comparator<? super T> getComparator() {
+			return source.getComparator();
+		}
+	}
+
+	static class AcumulateSpliterator<T, U> implements Spliterator<U>, Consumer<T> {
+
+		final BiFunction<U, T, U> operator;
+		final Spliterator<T> source;
+		U accumulator;
+		Consumer<? super U> action;
+
+		AcumulateSpliterator(U unit, BiFunction<U, T, U> operator, Spliterator<T> source) {
+			this.accumulator = unit;
+			this.operator = operator;
+			this.source = source;
+		}
+
+		@Override
+		public void accept(T t) {
+			action.accept(accumulator = operator.apply(accumulator, t));
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super U> action) {
+			this.action = action;
+			return source.tryAdvance(this);
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super U> action) {
+			this.action = action;
+			source.forEachRemaining(this);
+		}
+
+		@Override
+		public Spliterator<U> trySplit() {
+			return null;
+		}
+
+		@Override
+		public long estimateSize() {
+			return source.estimateSize();
+		}
+
+		@Override
+		public int characteristics() {
+			return source.characteristics() & (ORDERED | SIZED);
+		}
+	}
+
+	/**
+	 * sourceをsize個ずつのリストにまとめます。
+	 * リストは毎回新たに生成するので、受け取った側で保持しても変更されません。
+	 */
+	static class ChunkSpliterator<T> implements Spliterator<List<T>>, Consumer<T> {
+
+		final int size;
+		final Spliterator<T> source;
+		ArrayList<T> chunk;
+		Consumer<? super List<T>> action;
+		List<T> pending;
+
+		ChunkSpliterator(int size, Spliterator<T> source) {
+			this.size = size;
+			this.source = source;
+			this.chunk = new ArrayList<>(size);
+		}
+
+		@Override
+		public void accept(T t) {
+			chunk.add(t);
+			if (chunk.size() >= size) {
+				List<T> full = chunk;
+				chunk = new ArrayList<>(size);
+				if (action != null)
+					action.accept(full);
+				else
+					pending = full;
+			}
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super List<T>> action) {
+			while (pending == null && source.tryAdvance(this))
+				;
+			if (pending == null && !chunk.isEmpty()) {
+				pending = chunk;
+				chunk = new ArrayList<>(0);
+			}
+			if (pending == null)
+				return false;
+			List<T> result = pending;
+			pending = null;
+			action.accept(result);
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super List<T>> action) {
+			if (pending != null) {
+				action.accept(pending);
+				pending = null;
+			}
+			this.action = action;
+			source.forEachRemaining(this);
+			this.action = null;
+			if (!chunk.isEmpty()) {
+				action.accept(chunk);
+				chunk = new ArrayList<>(0);
+			}
+		}
+
+		@Override
+		public Spliterator<List<T>> trySplit() {
+			return null;
+		}
+
+		@Override
+		public long estimateSize() {
+			long n = source.estimateSize();
+			return n == Long.MAX_VALUE ? n : (n + chunk.size() + size - 1) / size + (pending != null ? 1 : 0);
+		}
+
+		@Override
+		public int characteristics() {
+			return (source.characteristics() & (ORDERED | SIZED)) | NONNULL;
+		}
+	}
+
+	/**
+	 * sourceのstep個ごとに、連続するsize個の要素のリストを生成します。
+	 * 要素はリングバッファに保持し、ウィンドウがそろうたびにその内容をリストにコピーします。
+	 */
+	static class WindowSpliterator<T> implements Spliterator<List<T>>, Consumer<T> {
+
+		final int size, step;
+		final Spliterator<T> source;
+		final Object[] ring;
+		int start = 0, count = 0, skip = 0;
+		Consumer<? super List<T>> action;
+		List<T> pending;
+
+		WindowSpliterator(int size, int step, Spliterator<T> source) {
+			this.size = size;
+			this.step = step;
+			this.source = source;
+			this.ring = new Object[size];
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public void accept(T t) {
+			if (skip > 0) {
+				--skip;
+				return;
+			}
+			ring[(start + count++) % size] = t;
+			if (count < size)
+				return;
+			ArrayList<T> window = new ArrayList<>(size);
+			for (int i = 0; i < size; ++i)
+				window.add((T)ring[(start + i) % size]);
+			int drop = Math.min(step, size);
+			start = (start + drop) % size;
+			count -= drop;
+			skip = step - drop;
+			if (action != null)
+				action.accept(window);
+			else
+				pending = window;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super List<T>> action) {
+			while (pending == null && source.tryAdvance(this))
+				;
+			if (pending == null)
+				return false;
+			List<T> result = pending;
+			pending = null;
+			action.accept(result);
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super List<T>> action) {
+			if (pending != null) {
+				action.accept(pending);
+				pending = null;
+			}
+			this.action = action;
+			source.forEachRemaining(this);
+			this.action = null;
+		}
+
+		@Override
+		public Spliterator<List<T>> trySplit() {
+			return null;
+		}
+
+		@Override
+		public long estimateSize() {
+			return source.estimateSize();
+		}
+
+		@Override
+		public int characteristics() {
+			return (source.characteristics() & ORDERED) | NONNULL;
+		}
+	}
+
+	/**
+	 * スライディングウィンドウの集計結果を要素ごとに返します。
+	 * timestampがnullの場合は直近のsize個を、それ以外はtimestampが直近の要素のtimestamp - spanより大きい要素をウィンドウとします。
+	 * 個数によるウィンドウはsize個そろってから、時間によるウィンドウは要素ごとに結果を返します。
+	 * ウィンドウに要素が入るとinsert、出るとevictを呼び出すので、サブクラスはそれぞれの集計を逐次更新します。
+	 */
+	static abstract class SlidingSpliterator<T, R> implements Spliterator<R>, Consumer<T> {
+
+		final int size;
+		final ToLongFunction<? super T> timestamp;
+		final long span;
+		final Spliterator<T> source;
+		final ArrayDeque<T> elements = new ArrayDeque<>();
+		Consumer<? super R> action;
+		R pending;
+		boolean hasPending = false;
+
+		SlidingSpliterator(int size, ToLongFunction<? super T> timestamp, long span, Spliterator<T> source) {
+			this.size = size;
+			this.timestamp = timestamp;
+			this.span = span;
+			this.source = source;
+		}
+
+		abstract void insert(T t);
+
+		abstract void evict(T t);
+
+		abstract R result();
+
+		@Override
+		public void accept(T t) {
+			if (timestamp == null) {
+				if (elements.size() >= size)
+					evict(elements.poll());
+			} else {
+				long limit = timestamp.applyAsLong(t) - span;
+				while (!elements.isEmpty() && timestamp.applyAsLong(elements.peek()) <= limit)
+					evict(elements.poll());
+			}
+			elements.add(t);
+			insert(t);
+			if (timestamp != null || elements.size() >= size) {
+				R r = result();
+				if (action != null)
+					action.accept(r);
+				else {
+					pending = r;
+					hasPending = true;
+				}
+			}
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super R> action) {
+			while (!hasPending && source.tryAdvance(this))
+				;
+			if (!hasPending)
+				return false;
+			R result = pending;
+			pending = null;
+			hasPending = false;
+			action.accept(result);
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super R> action) {
+			if (hasPending) {
+				action.accept(pending);
+				pending = null;
+				hasPending = false;
+			}
+			this.action = action;
+			source.forEachRemaining(this);
+			this.action = null;
+		}
+
+		@Override
+		public Spliterator<R> trySplit() {
+			return null;
+		}
+
+		@Override
+		public long estimateSize() {
+			return source.estimateSize();
+		}
+
+		@Override
+		public int characteristics() {
+			return source.characteristics() & ORDERED;
+		}
+	}
+
+	/**
+	 * 逆演算のある集計です。要素が出るときにremoveで取り除くので、要素ごとの更新はO(1)です。
+	 */
+	static class InvertibleSlidingSpliterator<T, U> extends SlidingSpliterator<T, U> {
+
+		final BiFunction<U, ? super T, U> add, remove;
+		U accumulator;
+
+		InvertibleSlidingSpliterator(int size, ToLongFunction<? super T> timestamp, long span,
+				U unit, BiFunction<U, ? super T, U> add, BiFunction<U, ? super T, U> remove, Spliterator<T> source) {
+			super(size, timestamp, span, source);
+			this.add = add;
+			this.remove = remove;
+			this.accumulator = unit;
+		}
+
+		@Override
+		void insert(T t) {
+			accumulator = add.apply(accumulator, t);
+		}
+
+		@Override
+		void evict(T t) {
+			accumulator = remove.apply(accumulator, t);
+		}
+
+		@Override
+		U result() {
+			return accumulator;
+		}
+	}
+
+	/**
+	 * 結合的な演算の集計です(2スタック法)。
+	 * 新しい要素はback側に積んでその集計を保持し、front側には古い要素から末尾までの集計を積みます。
+	 * front側が空になったときだけback側を移し替えるので、要素ごとの更新は償却O(1)です。
+	 */
+	static class TwoStackSlidingSpliterator<T> extends SlidingSpliterator<T, T> {
+
+		final BinaryOperator<T> operator;
+		final ArrayList<T> front = new ArrayList<>();
+		final ArrayList<T> back = new ArrayList<>();
+		T backAggregate;
+
+		TwoStackSlidingSpliterator(int size, ToLongFunction<? super T> timestamp, long span,
+				BinaryOperator<T> operator, Spliterator<T> source) {
+			super(size, timestamp, span, source);
+			this.operator = operator;
+		}
+
+		@Override
+		void insert(T t) {
+			backAggregate = back.isEmpty() ? t : operator.apply(backAggregate, t);
+			back.add(t);
+		}
+
+		@Override
+		void evict(T t) {
+			if (front.isEmpty()) {
+				T aggregate = null;
+				for (int i = back.size() - 1; i >= 0; --i) {
+					T e = back.get(i);
+					front.add(aggregate = i == back.size() - 1 ? e : operator.apply(e, aggregate));
+				}
+				back.clear();
+				backAggregate = null;
+			}
+			front.remove(front.size() - 1);
+		}
+
+		@Override
+		T result() {
+			if (front.isEmpty())
+				return backAggregate;
+			T frontAggregate = front.get(front.size() - 1);
+			return back.isEmpty() ? frontAggregate : operator.apply(frontAggregate, backAggregate);
+		}
+	}
+
+	/**
+	 * 最大値の集計です(単調キュー)。dequeには、後から入った要素より小さくない要素だけを古い順に保持します。
+	 * 先頭が常にウィンドウの最大値になり、各要素は高々1回しか入出力しないので、要素ごとの更新は償却O(1)です。
+	 * 最小値は逆順のcomparatorで求めます。
+	 */
+	static class MonotonicSlidingSpliterator<T> extends SlidingSpliterator<T, T> {
+
+		final Comparator<? super T> comparator;
+		final ArrayDeque<T> deque = new ArrayDeque<>();
+
+		MonotonicSlidingSpliterator(int size, ToLongFunction<? super T> timestamp, long span,
+				Comparator<? super T> comparator, Spliterator<T> source) {
+			super(size, timestamp, span, source);
+			this.comparator = comparator;
+		}
+
+		@Override
+		void insert(T t) {
+			while (!deque.isEmpty() && comparator.compare(deque.peekLast(), t) < 0)
+				deque.pollLast();
+			deque.add(t);
+		}
+
+		/**
+		 * 出ていく要素がdequeに残っていれば先頭にあります。
+		 * 残っていなければ、先頭はそれより大きいので比較で区別できます。
+		 */
+		@Override
+		void evict(T t) {
+			if (comparator.compare(deque.peek(), t) == 0)
+				deque.poll();
+		}
+
+		@Override
+		T result() {
+			return deque.peek();
+		}
+	}
+
+	/**
+	 * predicateを満たさない要素が現れるまでの要素を返します。
+	 */
+	static class TakeWhileSpliterator<T> implements Spliterator<T>, Consumer<T> {
+
+		final Predicate<? super T> predicate;
+		final Spliterator<T> source;
+		boolean done = false;
+		T current;
+
+		TakeWhileSpliterator(Predicate<? super T> predicate, Spliterator<T> source) {
+			this.predicate = predicate;
+			this.source = source;
+		}
+
+		@Override
+		public void accept(T t) {
+			current = t;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action) {
+			if (done || !source.tryAdvance(this))
+				return false;
+			T t = current;
+			current = null;
+			if (!predicate.test(t)) {
+				done = true;
+				return false;
+			}
+			action.accept(t);
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super T> action) {
+			while (tryAdvance(action))
+				;
+		}
+
+		@Override
+		public Spliterator<T> trySplit() {
+			return null;
+		}
+
+		@Override
+		public long estimateSize() {
+			return done ? 0 : source.estimateSize();
+		}
+
+		@Override
+		public int characteristics() {
+			return source.characteristics() & ~(SIZED | SUBSIZED);
+		}
+
+		@Override
+		public Comparator<? super T> getComparator() {
+			return source.getComparator();
+		}
+	}
+
+	/**
+	 * predicateを満たす先頭の要素を読み飛ばし、それ以降の要素をすべて返します。
+	 */
+	static class DropWhileSpliterator<T> implements Spliterator<T>, Consumer<T> {
+
+		final Predicate<? super T> predicate;
+		final Spliterator<T> source;
+		boolean dropping = true, found = false;
+		T current;
+
+		DropWhileSpliterator(Predicate<? super T> predicate, Spliterator<T> source) {
+			this.predicate = predicate;
+			this.source = source;
+		}
+
+		@Override
+		public void accept(T t) {
+			if (!predicate.test(t)) {
+				dropping = false;
+				found = true;
+				current = t;
+			}
+		}
+
+		/**
+		 * predicateを満たさない最初の要素を探し、見つかればactionに渡します。
+		 */
+		boolean drop(Consumer<? super T> action) {
+			while (dropping && source.tryAdvance(this))
+				;
+			dropping = false;
+			if (!found)
+				return false;
+			found = false;
+			T t = current;
+			current = null;
+			action.accept(t);
+			return true;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action) {
+			if (dropping)
+				return drop(action);
+			return source.tryAdvance(action);
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super T> action) {
+			if (dropping && !drop(action))
+				return;
+			source.forEachRemaining(action);
+		}
+
+		@Override
+		public Spliterator<T> trySplit() {
+			return null;
+		}
+
+		@Override
+		public long estimateSize() {
+			return source.estimateSize();
+		}
+
+		@Override
+		public int characteristics() {
+			return source.characteristics() & ~(SIZED | SUBSIZED);
+		}
+
+		@Override
+		public Comparator<? super T> getComparator() {
+			return source.getComparator();
+		}
+	}
+
+	static class ZipSpliterator<L, R, U> implements Spliterator<U>, Consumer<L> {
+
+		final BiFunction<L, R, U> mapper;
+		final Spliterator<L> left;
+		final Spliterator<R> right;
+		final Consumer<R> rightConsumer = r -> rightValue = r;
+		L leftValue;
+		R rightValue;
+
+		ZipSpliterator(BiFunction<L, R, U> mapper, Spliterator<L> left, Spliterator<R> right) {
+			this.mapper = mapper;
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		public void accept(L l) {
+			leftValue = l;
+		}
+
+		/**
+		 * 左右の要素をフィールドに受け取るので、要素ごとにラムダを生成しません。
+		 */
+		@Override
+		public boolean tryAdvance(Consumer<? super U> action) {
+			if (!left.tryAdvance(this) || !right.tryAdvance(rightConsumer))
+				return false;
+			L l = leftValue;
+			R r = rightValue;
+			leftValue = null;
+			rightValue = null;
+			action.accept(mapper.apply(l, r));
+			return true;
+		}
+
+		@Override
+		public Spliterator<U> trySplit() {
+			return null;
+		}
+
+		@Override
+		public long estimateSize() {
+			return Math.min(left.estimateSize(), right.estimateSize());
+		}
+
+		@Override
+		public int characteristics() {
+			return left.characteristics() & right.characteristics() & (ORDERED | SIZED);
+		}
+	}
+
+	static class IntMapSpliterator implements Spliterator.OfInt, IntConsumer {
+
+		final IntUnaryOperator mapper;
+		final Spliterator.OfInt source;
+		IntConsumer action;
+
+		IntMapSpliterator(IntUnaryOperator mapper, Spliterator.OfInt source) {
+			this.mapper = mapper;
+			this.source = source;
+		}
+
+		@Override
+		public void accept(int i) {
+			action.accept(mapper.applyAsInt(i));
+		}
+
+		@Override
+		public boolean tryAdvance(IntConsumer action) {
+			this.action = action;
+			return source.tryAdvance((IntConsumer)this);
+		}
+
+		@Override
+		public void forEachRemaining(IntConsumer action) {
+			this.action = action;
+			source.forEachRemaining((IntConsumer)this);
+		}
+
+		@Override
+		public Spliterator.OfInt trySplit() {
+			Spliterator.OfInt prefix = source.trySplit();
+			return prefix == null ? null : new IntMapSpliterator(mapper, prefix);
+		}
+
+		@Override
+		public long estimateSize() {
+			return source.estimateSize();
+		}
+
+		@Override
+		public int characteristics() {
+			return source.characteristics() & ~(DISTINCT | SORTED);
+		}
+	}
+
+	static class IntFilterSpliterator implements Spliterator.OfInt, IntConsumer {
+
+		final IntPredicate selector;
+		final Spliterator.OfInt source;
+		IntConsumer action;
+		boolean found;
+
+		IntFilterSpliterator(IntPredicate selector, Spliterator.OfInt source) {
+			this.selector = selector;
+			this.source = source;
+		}
+
+		@Override
+		public void accept(int i) {
+			if (selector.test(i)) {
+				action.accept(i);
+				found = true;
+			}
+		}
+
+		@Override
+		public boolean tryAdvance(IntConsumer action) {
+			this.action = action;
+			found = false;
+			while (!found && source.tryAdvance((IntConsumer)this))
+				;
+			return found;
+		}
+
+		@Override
+		public void forEachRemaining(IntConsumer action) {
+			this.action = action;
+			source.forEachRemaining((IntConsumer)this);
+		}
+
+		@Override
+		public Spliterator.OfInt trySplit() {
+			Spliterator.OfInt prefix = source.trySplit();
+			return prefix == null ? null : new IntFilterSpliterator(selector, prefix);
+		}
+
+		@Override
+		public long estimateSize() {
+			return source.estimateSize();
+		}
+
+		@Override
+		public int characteristics() {
+			return source.characteristics() & ~(SIZED | SUBSIZED);
+		}
+
+		@Override
+		public Comparator<? super Integer> getComparator() {
+			return source.getComparator();
+		}
+	}
+}
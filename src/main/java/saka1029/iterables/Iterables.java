@@ -1,6 +1,12 @@
 package saka1029.iterables;
 
+import static saka1029.iterables.IterableSpliterators.splittable;
+
+import java.lang.ref.Cleaner;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -10,8 +16,20 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.BiPredicate;
 import java.util.function.BinaryOperator;
@@ -20,7 +38,29 @@ import java.util.function.Function;
 import java.util.function.IntFunction;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collector;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import saka1029.iterables.IterableSpliterators.AcumulateSpliterator;
+import saka1029.iterables.IterableSpliterators.ChunkSpliterator;
+import saka1029.iterables.IterableSpliterators.ConcatSpliterator;
+import saka1029.iterables.IterableSpliterators.DropWhileSpliterator;
+import saka1029.iterables.IterableSpliterators.FilterSpliterator;
+import saka1029.iterables.IterableSpliterators.InvertibleSlidingSpliterator;
+import saka1029.iterables.IterableSpliterators.FlatMapArraySpliterator;
+import saka1029.iterables.IterableSpliterators.FlatMapListSpliterator;
+import saka1029.iterables.IterableSpliterators.FlatMapSpliterator;
+import saka1029.iterables.IterableSpliterators.LimitSpliterator;
+import saka1029.iterables.IterableSpliterators.MapMultiSpliterator;
+import saka1029.iterables.IterableSpliterators.MapSpliterator;
+import saka1029.iterables.IterableSpliterators.MonotonicSlidingSpliterator;
+import saka1029.iterables.IterableSpliterators.SkipSpliterator;
+import saka1029.iterables.IterableSpliterators.TakeWhileSpliterator;
+import saka1029.iterables.IterableSpliterators.TwoStackSlidingSpliterator;
+import saka1029.iterables.IterableSpliterators.WindowSpliterator;
+import saka1029.iterables.IterableSpliterators.ZipSpliterator;
 
 public class Iterables {
 	
@@ -34,7 +74,7 @@ public class Iterables {
 	}
 	
 	public static <T> boolean isEmpty(Iterable<T> source) {
-		return !source.iterator().hasNext();
+		return !source.spliterator().tryAdvance(t -> {});
 	}
 
 	public static <T, C> Iterator<T> iterator(C context, Predicate<C> hasNext, Function<C, T> next) {
@@ -63,61 +103,40 @@ public class Iterables {
 	 * 2回呼び出すとIllegalStateExceptionがスローされます。
 	 */
 	public static <T> Iterable<T> iterable(Stream<T> stream) {
-		return () -> stream.iterator();
+		return splittable(stream::iterator, stream::spliterator);
 	}
 
-	public static Iterable<Integer> range(int start, int end) {
-		return () -> new Iterator<Integer>() {
-
-			int i = start;
-
-			@Override
-			public boolean hasNext() {
-				return i < end;
-			}
-
-			@Override
-			public Integer next() {
-				return i++;
-			}
-			
-		};
+	/**
+	 * Streamを生成するSupplierをIterableに変換します。
+	 * iterator()やspliterator()を呼び出すたびに新しいStreamを生成するので、何回でも呼び出すことができます。
+	 * spliterator()はStreamのSpliteratorをそのまま返すので、特性や分割の効率も引き継ぎます。
+	 */
+	public static <T> Iterable<T> iterable(Supplier<Stream<T>> streams) {
+		return splittable(() -> streams.get().iterator(), () -> streams.get().spliterator());
 	}
 
-	public static Iterable<Integer> rangeClosed(int start, int end) {
-		return () -> new Iterator<Integer>() {
-
-			int i = start;
-
-			@Override
-			public boolean hasNext() {
-				return i <= end;
-			}
-
-			@Override
-			public Integer next() {
-				return i++;
-			}
-			
-		};
+	/**
+	 * IterableをStreamに変換します。
+	 * Iterablesが返すIterableは分割可能なSpliteratorを持つので、parallel()にすれば並列に処理されます。
+	 */
+	public static <T> Stream<T> stream(Iterable<T> source) {
+		return StreamSupport.stream(source.spliterator(), false);
 	}
 
-	public static Iterable<Integer> range(int start, int end, int step) {
-		return () -> new Iterator<Integer>() {
+	public static <T> Stream<T> parallelStream(Iterable<T> source) {
+		return StreamSupport.stream(source.spliterator(), true);
+	}
 
-			int i = start;
+	public static IntIterable range(int start, int end) {
+		return IntIterables.range(start, end);
+	}
 
-			@Override
-			public boolean hasNext() {
-				return step > 0 ? i < end : i > end;
-			}
+	public static IntIterable rangeClosed(int start, int end) {
+		return IntIterables.rangeClosed(start, end);
+	}
 
-			@Override
-			public Integer next() {
-				return prog0(i, c -> this.i += step);
-			}
-			
-		};
+	public static IntIterable range(int start, int end, int step) {
+		return IntIterables.range(start, end, step);
 	}
 
 	public static List<Integer> list(int... elements) {
@@ -127,15 +146,15 @@ public class Iterables {
 		return list;
 	}
 	
-	public static Iterable<Integer> codePoints(String s) {
-		return () -> s.codePoints().iterator();
+	public static IntIterable codePoints(String s) {
+		return IntIterables.codePoints(s);
 	}
 	
 	@SafeVarargs
 	public static <T> Iterable<T> concat(Iterable<T>... sources) {
-		return () -> new Iterator<T>() {
+		return splittable(() -> new Iterator<T>() {
 
-			Iterator<Iterable<T>> iterators = List.of(sources).iterator();
+			int index = 0;
 			Iterator<T> iterator = null;
 			boolean hasNext = advance();
 			T next;
@@ -143,9 +162,9 @@ public class Iterables {
 			boolean advance() {
 				while (true) {
                     if (iterator == null) {
-                    	if (!iterators.hasNext())
+                    	if (index >= sources.length)
                     		return false;
-                        iterator = iterators.next().iterator();
+                        iterator = sources[index++].iterator();
                     }
                     if (iterator.hasNext()) {
                     	next = iterator.next();
@@ -165,11 +184,18 @@ public class Iterables {
 				return prog0(next, t -> hasNext = advance());
 			}
 			
-		};
+		}, () -> ConcatSpliterator.of(sources));
 	}
 
+	/**
+	 * sourceが添字で読み出せる場合(range、RandomAccessなListなど)は、結果も添字で読み出せます。
+	 * その場合、skipやnthは読み飛ばした要素にmapperを適用しません。
+	 */
 	public static <T, U> Iterable<U> map(Function<T, U> mapper, Iterable<T> source) {
-		return () -> new Iterator<U>() {
+		Indexed<T> indexed = Indexed.of(source);
+		if (indexed != null)
+			return Indexed.map(mapper, indexed);
+		return splittable(() -> new Iterator<U>() {
 
 			final Iterator<T> iterator = source.iterator();
 
@@ -183,11 +209,11 @@ public class Iterables {
 				return mapper.apply(iterator.next());
 			}
 			
-		};
+		}, () -> new MapSpliterator<>(mapper, source.spliterator()));
 	}
 
 	public static <L, R, U> Iterable<U> map(BiFunction<L, R, U> mapper, Iterable<L> leftSource, Iterable<R> rightSource) {
-		return () -> new Iterator<U>() {
+		return splittable(() -> new Iterator<U>() {
 
 			final Iterator<L> left = leftSource.iterator();
 			final Iterator<R> right = rightSource.iterator();
@@ -202,7 +228,7 @@ public class Iterables {
 				return mapper.apply(left.next(), right.next());
 			}
 			
-		};
+		}, () -> new ZipSpliterator<>(mapper, leftSource.spliterator(), rightSource.spliterator()));
 	}
 	
 	public static <T> List<T> sort(Comparator<T> comparator, Iterable<T> source) {
@@ -213,12 +239,274 @@ public class Iterables {
 		return sort(Comparator.naturalOrder(), source);
 	}
 
+	/**
+	 * sort(comparator, source)の先頭k個を返します。
+	 * 大きさkのヒープだけを使うので、O(n log k)の時間とO(k)のメモリで済みます。
+	 * 比較して等しい要素の順序はsortと同じく元の順序を保ちます。
+	 */
+	public static <T> List<T> topK(int k, Comparator<T> comparator, Iterable<T> source) {
+		return select(k, comparator, true, source);
+	}
+
+	public static <T extends Comparable<T>> List<T> topK(int k, Iterable<T> source) {
+		return topK(k, Comparator.naturalOrder(), source);
+	}
+
+	/**
+	 * sort(comparator, source)の末尾k個を返します。
+	 */
+	public static <T> List<T> bottomK(int k, Comparator<T> comparator, Iterable<T> source) {
+		return select(k, comparator, false, source);
+	}
+
+	public static <T extends Comparable<T>> List<T> bottomK(int k, Iterable<T> source) {
+		return bottomK(k, Comparator.naturalOrder(), source);
+	}
+
+	record Ranked<T>(T value, long index) {}
+
+	static <T> List<T> select(int k, Comparator<T> comparator, boolean first, Iterable<T> source) {
+		if (k <= 0)
+			return new ArrayList<>();
+		Comparator<Ranked<T>> order = (a, b) -> {
+			int c = comparator.compare(a.value(), b.value());
+			return c != 0 ? c : Long.compare(a.index(), b.index());
+		};
+		// firstのときは残した中で最も後ろになる要素を、そうでないときは最も前になる要素を先頭に置きます。
+		PriorityQueue<Ranked<T>> heap = new PriorityQueue<>(Math.min(k, 1 << 16) + 1, first ? order.reversed() : order);
+		var acc = new Object() { long index = 0; };
+		source.spliterator().forEachRemaining(t -> {
+			long index = acc.index++;
+			if (heap.size() < k)
+				heap.add(new Ranked<>(t, index));
+			else {
+				int c = comparator.compare(t, heap.peek().value());
+				if (first ? c < 0 : c >= 0) {
+					heap.poll();
+					heap.add(new Ranked<>(t, index));
+				}
+			}
+		});
+		@SuppressWarnings("unchecked")
+		T[] result = (T[])new Object[heap.size()];
+		for (int i = 0, size = result.length; i < size; ++i)
+			result[first ? size - 1 - i : i] = heap.poll().value();
+		return new ArrayList<>(Arrays.asList(result));
+	}
+
+	/**
+	 * sourceをcomparatorの順に並べたIterableを返します。sortと違い、ヒープに収まらない大きさのsourceも整列できます。
+	 * iterator()はsourceをrunSize個ずつ読み出して整列し、serializerで一時ファイルに書き出した後、
+	 * 各ファイルを併合しながら要素を返します。同じ順序の要素はsourceの順に返します。
+	 * 一時ファイルはすべての要素を読み出したとき、またはIteratorをAutoCloseableとしてclose()したときに削除します。
+	 * <pre>
+	 * for (String line : externalSort(Comparator.naturalOrder(), 1_000_000, Serializer.STRING, lines)) ...
+	 * </pre>
+	 */
+	public static <T> Iterable<T> externalSort(Comparator<T> comparator, int runSize, Serializer<T> serializer, Iterable<T> source) {
+		return new ExternalSort<>(comparator, runSize, serializer, null, source);
+	}
+
+	/**
+	 * 一時ファイルをdirectoryに作成するexternalSortです。
+	 */
+	public static <T> Iterable<T> externalSort(Comparator<T> comparator, int runSize, Serializer<T> serializer, Path directory, Iterable<T> source) {
+		return new ExternalSort<>(comparator, runSize, serializer, directory, source);
+	}
+
+	/**
+	 * それぞれcomparatorの順に並んでいるsourcesを併合して、全体をcomparatorの順に返します。
+	 * 同じ順序の要素は、sourcesの前にあるものから返します。
+	 * sourcesは1要素ずつしか先読みしないので、無限のIterableでも併合できます。
+	 * <pre>
+	 * mergeSorted(Comparator.naturalOrder(), list(1, 4, 7), list(2, 5), list(3)) -> [1, 2, 3, 4, 5, 7]
+	 * </pre>
+	 */
+	@SafeVarargs
+	public static <T> Iterable<T> mergeSorted(Comparator<T> comparator, Iterable<T>... sources) {
+		return () -> {
+			List<Iterator<T>> iterators = new ArrayList<>(sources.length);
+			for (Iterable<T> source : sources)
+				iterators.add(source.iterator());
+			return new MergeIterator<>(comparator, iterators);
+		};
+	}
+
+	/**
+	 * 各Iteratorの先頭の要素をヒープに置いて、最も前になる要素から順に返します。
+	 * 取り出した要素の次の要素はヒープの先頭を置き換えてふるい下げるので、要素ごとの割り当てはありません。
+	 */
+	static class MergeIterator<T> implements Iterator<T> {
+
+		final Comparator<T> comparator;
+		final Object[] heads;
+		final Iterator<T>[] iterators;
+		final int[] indexes;
+		int size = 0;
+
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		MergeIterator(Comparator<T> comparator, List<? extends Iterator<T>> iterators) {
+			int n = iterators.size();
+			this.comparator = comparator;
+			this.heads = new Object[n];
+			this.iterators = new Iterator[n];
+			this.indexes = new int[n];
+			for (int i = 0; i < n; ++i) {
+				Iterator<T> iterator = iterators.get(i);
+				if (iterator.hasNext()) {
+					heads[size] = iterator.next();
+					this.iterators[size] = iterator;
+					indexes[size] = i;
+					++size;
+				}
+			}
+			for (int i = size / 2 - 1; i >= 0; --i)
+				siftDown(i);
+		}
+
+		@SuppressWarnings("unchecked")
+		boolean less(int a, int b) {
+			int c = comparator.compare((T)heads[a], (T)heads[b]);
+			return c < 0 || c == 0 && indexes[a] < indexes[b];
+		}
+
+		void swap(int a, int b) {
+			Object head = heads[a];
+			heads[a] = heads[b];
+			heads[b] = head;
+			Iterator<T> iterator = iterators[a];
+			iterators[a] = iterators[b];
+			iterators[b] = iterator;
+			int index = indexes[a];
+			indexes[a] = indexes[b];
+			indexes[b] = index;
+		}
+
+		void siftDown(int i) {
+			while (true) {
+				int child = 2 * i + 1;
+				if (child >= size)
+					return;
+				if (child + 1 < size && less(child + 1, child))
+					++child;
+				if (!less(child, i))
+					return;
+				swap(i, child);
+				i = child;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return size > 0;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public T next() {
+			if (size <= 0)
+				throw new NoSuchElementException();
+			T result = (T)heads[0];
+			if (iterators[0].hasNext())
+				heads[0] = iterators[0].next();
+			else {
+				--size;
+				swap(0, size);
+				heads[size] = null;
+				iterators[size] = null;
+			}
+			siftDown(0);
+			return result;
+		}
+	}
+
+	/**
+	 * sortと同じ順序で要素を列挙するIterableを返します。
+	 * iterator()はsourceをコピーしてヒープを構成する(O(n))だけで、
+	 * 以後は要素を取り出すたびにO(log n)で次の要素を求めます。
+	 * limitと組み合わせれば、先頭k個だけをO(n + k log n)で得られます。
+	 */
+	public static <T> Iterable<T> sorted(Comparator<T> comparator, Iterable<T> source) {
+		return () -> new SortedIterator<>(comparator, arrayList(source).toArray());
+	}
+
+	public static <T extends Comparable<T>> Iterable<T> sorted(Iterable<T> source) {
+		return sorted(Comparator.naturalOrder(), source);
+	}
+
+	static class SortedIterator<T> implements Iterator<T> {
+
+		final Comparator<T> comparator;
+		final Object[] heap;
+		final int[] index;
+		int size;
+
+		SortedIterator(Comparator<T> comparator, Object[] elements) {
+			this.comparator = comparator;
+			this.heap = elements;
+			this.size = elements.length;
+			this.index = new int[size];
+			for (int i = 0; i < size; ++i)
+				index[i] = i;
+			for (int i = size / 2 - 1; i >= 0; --i)
+				siftDown(i);
+		}
+
+		@SuppressWarnings("unchecked")
+		boolean less(int a, int b) {
+			int c = comparator.compare((T)heap[a], (T)heap[b]);
+			return c < 0 || c == 0 && index[a] < index[b];
+		}
+
+		void swap(int a, int b) {
+			Object value = heap[a];
+			heap[a] = heap[b];
+			heap[b] = value;
+			int position = index[a];
+			index[a] = index[b];
+			index[b] = position;
+		}
+
+		void siftDown(int i) {
+			while (true) {
+				int child = 2 * i + 1;
+				if (child >= size)
+					return;
+				if (child + 1 < size && less(child + 1, child))
+					++child;
+				if (!less(child, i))
+					return;
+				swap(i, child);
+				i = child;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return size > 0;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public T next() {
+			if (size <= 0)
+				throw new NoSuchElementException();
+			T result = (T)heap[0];
+			--size;
+			heap[0] = heap[size];
+			index[0] = index[size];
+			heap[size] = null;
+			siftDown(0);
+			return result;
+		}
+	}
+
 	public static <T> List<T> reverse(Iterable<T> source) {
 		return prog0(arrayList(source), list -> Collections.reverse(list));
 	}
 
 	public static <T> Iterable<T> filter(Predicate<T> selector, Iterable<T> source) {
-		return () -> new Iterator<T>() {
+		return splittable(() -> new Iterator<T>() {
 			
 			final Iterator<T> iterator = source.iterator();
 			boolean hasNext = advance();
@@ -241,11 +529,11 @@ public class Iterables {
 				return prog0(next, c -> this.hasNext = advance());
 			}
 			
-		};
+		}, () -> new FilterSpliterator<>(selector, source.spliterator()));
 	}
 	
 	public static <T, U> Iterable<U> flatMap(Function<T, Iterable<U>> flatter, Iterable<T> source) {
-		return () -> new Iterator<U>() {
+		return splittable(() -> new Iterator<U>() {
 
 			final Iterator<T> parent = source.iterator();
 			Iterator<U> child = null;
@@ -278,20 +566,66 @@ public class Iterables {
 				return prog0(next, x -> hasNext = advance());
 			}
 			
-		};
+		}, () -> new FlatMapSpliterator<>(flatter, source.spliterator()));
+	}
+
+	/**
+	 * sourceの各要素を配列に展開します。
+	 * 展開した配列は添字で読み出すので、flatMapと違って要素ごとにIteratorを作りません。
+	 */
+	public static <T, U> Iterable<U> flatMapArray(Function<? super T, ? extends U[]> flatter, Iterable<T> source) {
+		return splittable(
+			() -> Spliterators.iterator(new FlatMapArraySpliterator<T, U>(flatter, source.spliterator())),
+			() -> new FlatMapArraySpliterator<T, U>(flatter, source.spliterator()));
+	}
+
+	/**
+	 * sourceの各要素をListに展開します。
+	 * 展開したListはget(int)で読み出すので、ArrayListなどのRandomAccessなListを返してください。
+	 */
+	public static <T, U> Iterable<U> flatMapList(Function<? super T, ? extends List<? extends U>> flatter, Iterable<T> source) {
+		return splittable(
+			() -> Spliterators.iterator(new FlatMapListSpliterator<T, U>(flatter, source.spliterator())),
+			() -> new FlatMapListSpliterator<T, U>(flatter, source.spliterator()));
+	}
+
+	/**
+	 * sourceの各要素をmapperに渡し、mapperが第2引数のConsumerに渡した要素を順に返します。
+	 * Stream.mapMultiと同じです。forEachRemainingで読み出す場合は要素を下流に直接渡し、
+	 * tryAdvanceやiterator()で読み出す場合は使い回すバッファに1要素分の展開結果を保持します。
+	 * <pre>
+	 * Iterable&lt;String&gt; words = mapMulti((String line, Consumer&lt;String&gt; emit) -> {
+	 *     for (String w : line.split(" ")) emit.accept(w);
+	 * }, lines);
+	 * </pre>
+	 */
+	public static <T, U> Iterable<U> mapMulti(BiConsumer<? super T, ? super Consumer<U>> mapper, Iterable<T> source) {
+		return splittable(
+			() -> Spliterators.iterator(new MapMultiSpliterator<T, U>(mapper, source.spliterator())),
+			() -> new MapMultiSpliterator<T, U>(mapper, source.spliterator()));
 	}
 	
+	/**
+	 * sourceが添字で読み出せる場合(range、IntIterables.of、RandomAccessなList、それらのmapなど)は、
+	 * 読み飛ばさずにskip番目の位置から読み出します。
+	 */
 	public static <T> Iterable<T> skip(int skip, Iterable<T> source) {
-		return () -> {
+		Indexed<T> indexed = Indexed.of(source);
+		if (indexed != null)
+			return Indexed.slice(skip, Long.MAX_VALUE, indexed);
+		return splittable(() -> {
 			Iterator<T> iterator = source.iterator();
 			for (int i = 0; i < skip && iterator.hasNext(); ++i)
 				iterator.next();
 			return iterator;
-		};
+		}, () -> new SkipSpliterator<>(skip, source.spliterator()));
 	}
 	
 	public static <T> Iterable<T> limit(int limit, Iterable<T> source) {
-		return () -> new Iterator<T>() {
+		Indexed<T> indexed = Indexed.of(source);
+		if (indexed != null)
+			return Indexed.slice(0, limit, indexed);
+		return splittable(() -> new Iterator<T>() {
 			
 			final Iterator<T> iterator = source.iterator();
 			int i = 0;
@@ -307,11 +641,35 @@ public class Iterables {
 				return iterator.next();
 			}
 			
-		};
+		}, () -> new LimitSpliterator<>(limit, source.spliterator()));
 	}
 	
+	/**
+	 * predicateを満たさない要素が現れるまでの要素を返します。
+	 * <pre>
+	 * takeWhile(i -> i < 3, list(1, 2, 3, 1)) -> [1, 2]
+	 * </pre>
+	 */
+	public static <T> Iterable<T> takeWhile(Predicate<? super T> predicate, Iterable<T> source) {
+		return splittable(
+			() -> Spliterators.iterator(new TakeWhileSpliterator<>(predicate, source.spliterator())),
+			() -> new TakeWhileSpliterator<>(predicate, source.spliterator()));
+	}
+
+	/**
+	 * predicateを満たす先頭の要素を読み飛ばし、残りの要素を返します。
+	 * <pre>
+	 * dropWhile(i -> i < 3, list(1, 2, 3, 1)) -> [3, 1]
+	 * </pre>
+	 */
+	public static <T> Iterable<T> dropWhile(Predicate<? super T> predicate, Iterable<T> source) {
+		return splittable(
+			() -> Spliterators.iterator(new DropWhileSpliterator<>(predicate, source.spliterator())),
+			() -> new DropWhileSpliterator<>(predicate, source.spliterator()));
+	}
+
 	public static <T, U> Iterable<U> acumulate(U unit, BiFunction<U, T, U> operator, Iterable<T> source) {
-		return () -> new Iterator<U>() {
+		return splittable(() -> new Iterator<U>() {
 
 			final Iterator<T> iterator = source.iterator();
 			U accumulator = unit;
@@ -326,53 +684,564 @@ public class Iterables {
 				return accumulator = operator.apply(accumulator, iterator.next());
 			}
 			
-		};
+		}, () -> new AcumulateSpliterator<>(unit, operator, source.spliterator()));
+	}
+
+	/**
+	 * sourceをsize個ずつのリストに分割します。最後のリストはsize個未満になることがあります。
+	 * 各リストは新たに生成するので、受け取った側で保持しても変更されません。
+	 * <pre>
+	 * chunk(2, list(1, 2, 3, 4, 5)) -> [[1, 2], [3, 4], [5]]
+	 * </pre>
+	 */
+	public static <T> Iterable<List<T>> chunk(int size, Iterable<T> source) {
+		if (size <= 0)
+			throw new IllegalArgumentException("size must be > 0");
+		return splittable(
+			() -> Spliterators.iterator(new ChunkSpliterator<>(size, source.spliterator())),
+			() -> new ChunkSpliterator<>(size, source.spliterator()));
+	}
+
+	/**
+	 * sourceのstep個ごとに、連続するsize個の要素からなるリストを返します。
+	 * size個に満たない末尾のウィンドウは返しません。
+	 * <pre>
+	 * window(3, 1, list(1, 2, 3, 4, 5)) -> [[1, 2, 3], [2, 3, 4], [3, 4, 5]]
+	 * window(2, 3, list(1, 2, 3, 4, 5)) -> [[1, 2], [4, 5]]
+	 * </pre>
+	 */
+	public static <T> Iterable<List<T>> window(int size, int step, Iterable<T> source) {
+		if (size <= 0 || step <= 0)
+			throw new IllegalArgumentException("size and step must be > 0");
+		return splittable(
+			() -> Spliterators.iterator(new WindowSpliterator<>(size, step, source.spliterator())),
+			() -> new WindowSpliterator<>(size, step, source.spliterator()));
+	}
+
+	/**
+	 * 直近のsize個の要素をoperatorで集計した結果を、要素ごとに返します。
+	 * operatorは結合的でなければなりません。要素ごとの計算量は償却O(1)で、ウィンドウを集計し直しません。
+	 * size個に満たない先頭のウィンドウの結果は返しません(windowと同じです)。
+	 * <pre>
+	 * slidingReduce(3, Integer::sum, list(1, 2, 3, 4, 5)) -> [6, 9, 12]
+	 * </pre>
+	 */
+	public static <T> Iterable<T> slidingReduce(int size, BinaryOperator<T> operator, Iterable<T> source) {
+		checkWindowSize(size);
+		return splittable(
+			() -> Spliterators.iterator(new TwoStackSlidingSpliterator<>(size, null, 0, operator, source.spliterator())),
+			() -> new TwoStackSlidingSpliterator<>(size, null, 0, operator, source.spliterator()));
+	}
+
+	/**
+	 * 直近のsize個の要素の集計結果を、要素ごとに返します。
+	 * 要素がウィンドウに入るとaddで加え、出るとremoveで取り除きます。
+	 * 合計や件数のように逆演算のある集計に使います。
+	 * <pre>
+	 * slidingReduce(3, 0, (s, e) -> s + e, (s, e) -> s - e, list(1, 2, 3, 4, 5)) -> [6, 9, 12]
+	 * </pre>
+	 */
+	public static <T, U> Iterable<U> slidingReduce(int size, U unit, BiFunction<U, ? super T, U> add,
+			BiFunction<U, ? super T, U> remove, Iterable<T> source) {
+		checkWindowSize(size);
+		return splittable(
+			() -> Spliterators.iterator(new InvertibleSlidingSpliterator<>(size, null, 0, unit, add, remove, source.spliterator())),
+			() -> new InvertibleSlidingSpliterator<>(size, null, 0, unit, add, remove, source.spliterator()));
+	}
+
+	/**
+	 * 時間によるウィンドウのslidingReduceです。
+	 * 各要素について、timestampがその要素のtimestamp - spanより大きい要素を集計した結果を返します。
+	 * sourceはtimestampの昇順に並んでいなければなりません。
+	 */
+	public static <T> Iterable<T> slidingReduce(ToLongFunction<? super T> timestamp, long span,
+			BinaryOperator<T> operator, Iterable<T> source) {
+		checkWindowSpan(span);
+		return splittable(
+			() -> Spliterators.iterator(new TwoStackSlidingSpliterator<>(0, timestamp, span, operator, source.spliterator())),
+			() -> new TwoStackSlidingSpliterator<>(0, timestamp, span, operator, source.spliterator()));
+	}
+
+	public static <T, U> Iterable<U> slidingReduce(ToLongFunction<? super T> timestamp, long span,
+			U unit, BiFunction<U, ? super T, U> add, BiFunction<U, ? super T, U> remove, Iterable<T> source) {
+		checkWindowSpan(span);
+		return splittable(
+			() -> Spliterators.iterator(new InvertibleSlidingSpliterator<>(0, timestamp, span, unit, add, remove, source.spliterator())),
+			() -> new InvertibleSlidingSpliterator<>(0, timestamp, span, unit, add, remove, source.spliterator()));
+	}
+
+	/**
+	 * 直近のsize個の要素の最大値を、要素ごとに返します。要素ごとの計算量は償却O(1)です。
+	 */
+	public static <T> Iterable<T> slidingMax(int size, Comparator<? super T> comparator, Iterable<T> source) {
+		checkWindowSize(size);
+		return splittable(
+			() -> Spliterators.iterator(new MonotonicSlidingSpliterator<>(size, null, 0, comparator, source.spliterator())),
+			() -> new MonotonicSlidingSpliterator<>(size, null, 0, comparator, source.spliterator()));
+	}
+
+	public static <T extends Comparable<T>> Iterable<T> slidingMax(int size, Iterable<T> source) {
+		return slidingMax(size, Comparator.naturalOrder(), source);
+	}
+
+	public static <T> Iterable<T> slidingMin(int size, Comparator<? super T> comparator, Iterable<T> source) {
+		return slidingMax(size, Collections.reverseOrder(comparator), source);
+	}
+
+	public static <T extends Comparable<T>> Iterable<T> slidingMin(int size, Iterable<T> source) {
+		return slidingMin(size, Comparator.naturalOrder(), source);
+	}
+
+	/**
+	 * 直近のsize個の要素の平均を、要素ごとに返します。合計は要素の出入りのたびに加減して更新します。
+	 */
+	public static <T extends Number> Iterable<Double> movingAverage(int size, Iterable<T> source) {
+		return map(s -> s / size, slidingReduce(size, 0.0, (s, e) -> s + e.doubleValue(), (s, e) -> s - e.doubleValue(), source));
+	}
+
+	static void checkWindowSize(int size) {
+		if (size <= 0)
+			throw new IllegalArgumentException("size must be > 0");
+	}
+
+	static void checkWindowSpan(long span) {
+		if (span <= 0)
+			throw new IllegalArgumentException("span must be > 0");
+	}
+
+	/**
+	 * sourceをsize個ずつまとめてmapperに渡し、mapperが返した要素を順に返します。
+	 * 要素ごとではなくまとめて処理したほうが効率のよい変換(一括問い合わせなど)に使います。
+	 */
+	public static <T, U> Iterable<U> mapBatch(int size, Function<List<T>, ? extends Iterable<U>> mapper, Iterable<T> source) {
+		return flatMap(batch -> mapper.apply(batch), chunk(size, source));
+	}
+
+	/**
+	 * mapperを別のスレッドで実行するmapです。
+	 * 最大concurrency個の要素を先読みしてexecutorで同時に変換し、結果をsourceの順に返します。
+	 * 入出力を待つmapperで、待ち時間を重ねて全体の処理時間を短くするために使います。
+	 * 実行中の変換はIteratorのclose()を呼ぶか、Iteratorが参照されなくなったときに中断します。
+	 * limitなどで途中までしか読み出さない場合でも、余分に実行される変換は最大concurrency個です。
+	 */
+	public static <T, U> Iterable<U> mapAsync(Executor executor, int concurrency, Function<T, U> mapper, Iterable<T> source) {
+		if (concurrency <= 0)
+			throw new IllegalArgumentException("concurrency must be > 0");
+		return () -> new AsyncMapIterator<>(executor, concurrency, true, mapper, source.iterator());
+	}
+
+	public static <T, U> Iterable<U> mapAsync(int concurrency, Function<T, U> mapper, Iterable<T> source) {
+		return mapAsync(AsyncMapIterator.executor(), concurrency, mapper, source);
+	}
+
+	/**
+	 * 変換が終わった順に結果を返すmapAsyncです。
+	 * 変換にかかる時間がばらつく場合、遅い要素が後続の要素を待たせることがありません。
+	 */
+	public static <T, U> Iterable<U> mapAsyncUnordered(Executor executor, int concurrency, Function<T, U> mapper, Iterable<T> source) {
+		if (concurrency <= 0)
+			throw new IllegalArgumentException("concurrency must be > 0");
+		return () -> new AsyncMapIterator<>(executor, concurrency, false, mapper, source.iterator());
+	}
+
+	public static <T, U> Iterable<U> mapAsyncUnordered(int concurrency, Function<T, U> mapper, Iterable<T> source) {
+		return mapAsyncUnordered(AsyncMapIterator.executor(), concurrency, mapper, source);
+	}
+
+	public static class AsyncMapIterator<T, U> implements Iterator<U>, AutoCloseable {
+
+		static final Cleaner CLEANER = Cleaner.create();
+
+		static class DefaultExecutor {
+			static final Executor EXECUTOR = Executors.newCachedThreadPool(r -> {
+				Thread thread = new Thread(r, "Iterables.mapAsync");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+
+		/**
+		 * executorを指定しない場合に使うスレッドプールです。スレッドは必要に応じて生成し、再利用します。
+		 */
+		static Executor executor() {
+			return DefaultExecutor.EXECUTOR;
+		}
+
+		/**
+		 * 実行中の変換です。Iteratorが参照されなくなったときにCleanerから中断できるように、
+		 * Iteratorとは別のオブジェクトにしています。
+		 */
+		static class InFlight<U> implements Runnable {
+
+			final ArrayDeque<FutureTask<U>> tasks = new ArrayDeque<>();
+			final LinkedBlockingQueue<FutureTask<U>> completed = new LinkedBlockingQueue<>();
+			boolean closed = false;
+
+			@Override
+			public synchronized void run() {
+				closed = true;
+				for (FutureTask<U> task : tasks)
+					task.cancel(true);
+				tasks.clear();
+				completed.clear();
+			}
+		}
+
+		final Executor executor;
+		final int concurrency;
+		final boolean ordered;
+		final Function<T, U> mapper;
+		final Iterator<T> source;
+		final InFlight<U> inFlight = new InFlight<>();
+		final Cleaner.Cleanable cleanable;
+
+		AsyncMapIterator(Executor executor, int concurrency, boolean ordered, Function<T, U> mapper, Iterator<T> source) {
+			this.executor = executor;
+			this.concurrency = concurrency;
+			this.ordered = ordered;
+			this.mapper = mapper;
+			this.source = source;
+			this.cleanable = CLEANER.register(this, inFlight);
+		}
+
+		/**
+		 * 変換を実行するタスクを生成します。
+		 * タスクがこのIteratorを参照すると、Cleanerが中断できなくなるのでstaticメソッドで生成します。
+		 */
+		static <T, U> FutureTask<U> task(Function<T, U> mapper, T t, LinkedBlockingQueue<FutureTask<U>> completed) {
+			return new FutureTask<>(() -> mapper.apply(t)) {
+				@Override
+				protected void done() {
+					if (completed != null)
+						completed.add(this);
+				}
+			};
+		}
+
+		void fill() {
+			synchronized (inFlight) {
+				while (!inFlight.closed && inFlight.tasks.size() < concurrency && source.hasNext()) {
+					FutureTask<U> task = task(mapper, source.next(), ordered ? null : inFlight.completed);
+					inFlight.tasks.add(task);
+					executor.execute(task);
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			fill();
+			synchronized (inFlight) {
+				return !inFlight.tasks.isEmpty();
+			}
+		}
+
+		@Override
+		public U next() {
+			fill();
+			FutureTask<U> task;
+			try {
+				if (ordered)
+					synchronized (inFlight) {
+						task = inFlight.tasks.poll();
+					}
+				else {
+					synchronized (inFlight) {
+						if (inFlight.tasks.isEmpty())
+							throw new NoSuchElementException();
+					}
+					task = inFlight.completed.take();
+					synchronized (inFlight) {
+						inFlight.tasks.remove(task);
+					}
+				}
+				if (task == null)
+					throw new NoSuchElementException();
+				return task.get();
+			} catch (InterruptedException e) {
+				close();
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(e);
+			} catch (ExecutionException e) {
+				close();
+				if (e.getCause() instanceof RuntimeException r)
+					throw r;
+				if (e.getCause() instanceof Error r)
+					throw r;
+				throw new IllegalStateException(e.getCause());
+			}
+		}
+
+		/**
+		 * 実行中および実行待ちの変換をすべて中断します。以後、hasNext()はfalseを返します。
+		 */
+		@Override
+		public void close() {
+			inFlight.run();
+		}
+	}
+
+	/**
+	 * sourceの要素を最初に読み出したときに記録し、2回目以降は記録した要素を返すIterableを返します。
+	 * 複数のスレッドから同時に読み出すことができ、sourceはまとめて1回だけ読み出されます。
+	 * すべての要素を記録し終えた後のspliterator()は分割可能でSIZEDです。
+	 * <pre>
+	 * Iterable<Row> rows = cache(map(r -> expensive(r), source));
+	 * </pre>
+	 */
+	public static <T> Iterable<T> cache(Iterable<T> source) {
+		return new CachedIterable<>(Integer.MAX_VALUE, source);
+	}
+
+	/**
+	 * 記録する要素数をlimit個までに制限するcacheです。
+	 * 先頭のlimit個だけを記録し、それより後ろの要素は読み出すたびにskip(limit, source)から計算し直します。
+	 * sourceが添字で読み出せる場合(range、RandomAccessなList、それらのmapなど)は、
+	 * 記録した先頭のlimit個を計算し直すことはありません。
+	 * limitを超える場合、sourceは何度読み出しても同じ要素を返すものでなければなりません。
+	 */
+	public static <T> Iterable<T> cache(int limit, Iterable<T> source) {
+		if (limit < 0)
+			throw new IllegalArgumentException("limit must be >= 0");
+		return new CachedIterable<>(limit, source);
+	}
+
+	static class CachedIterable<T> implements Iterable<T> {
+
+		final int limit;
+		final Iterable<T> source;
+		final Iterable<T> tail;
+		Iterator<T> upstream;
+		volatile Object[] elements;
+		volatile int size = 0;
+		volatile boolean done = false, full = false;
+
+		CachedIterable(int limit, Iterable<T> source) {
+			this.limit = limit;
+			this.source = source;
+			this.tail = skip(limit, source);
+			this.elements = new Object[Math.min(16, limit)];
+		}
+
+		/**
+		 * index番目の要素を記録します。
+		 * 記録済みであればtrue、sourceにもう要素がないか先頭のlimit個を記録し終えた場合はfalseを返します。
+		 * 要素を書き込んでからsizeを更新するので、sizeを読んだスレッドはその要素を必ず読めます。
+		 */
+		synchronized boolean fill(int index) {
+			while (size <= index) {
+				if (done || full)
+					return false;
+				if (upstream == null)
+					upstream = source.iterator();
+				if (!upstream.hasNext()) {
+					done = true;
+					upstream = null;
+					return false;
+				}
+				// limit個ちょうどのsourceを読み直さないように、次の要素があることを確かめてから記録をやめます。
+				if (size >= limit) {
+					full = true;
+					upstream = null;
+					return false;
+				}
+				T e = upstream.next();
+				Object[] array = elements;
+				if (size >= array.length)
+					elements = array = Arrays.copyOf(array, (int)Math.min(Math.min((long)array.length * 2, limit), MAX_ARRAY_SIZE));
+				array[size] = e;
+				size = size + 1;
+			}
+			return true;
+		}
+
+		@Override
+		public Iterator<T> iterator() {
+			return new Iterator<T>() {
+
+				int index = 0;
+				Iterator<T> rest = null;
+
+				boolean cached() {
+					return rest == null && (index < size || fill(index));
+				}
+
+				/**
+				 * 記録していない後ろの要素を読み出すIteratorを返します。なければnullを返します。
+				 */
+				Iterator<T> rest() {
+					if (rest == null && full)
+						rest = tail.iterator();
+					return rest;
+				}
+
+				@Override
+				public boolean hasNext() {
+					if (cached())
+						return true;
+					Iterator<T> r = rest();
+					return r != null && r.hasNext();
+				}
+
+				@SuppressWarnings("unchecked")
+				@Override
+				public T next() {
+					if (cached())
+						return (T)elements[index++];
+					Iterator<T> r = rest();
+					if (r == null)
+						throw new NoSuchElementException();
+					++index;
+					return r.next();
+				}
+
+			};
+		}
+
+		@Override
+		public Spliterator<T> spliterator() {
+			if (done)
+				return Spliterators.spliterator(elements, 0, size, Spliterator.ORDERED);
+			return Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED);
+		}
 	}
 	
 	// Terminal operations
 	
+	/**
+	 * sourceの最初の要素を返します。最初の要素だけを読み出します。
+	 */
+	public static <T> Optional<T> findFirst(Iterable<T> source) {
+		var acc = new Object() { T result; };
+		return source.spliterator().tryAdvance(t -> acc.result = t) ? Optional.of(acc.result) : Optional.empty();
+	}
+
+	/**
+	 * predicateを満たす最初の要素を返します。見つかった時点で読み出しを終えます。
+	 */
+	public static <T> Optional<T> findFirst(Predicate<? super T> predicate, Iterable<T> source) {
+		var acc = new Object() { T result; boolean found = false; };
+		Spliterator<T> spliterator = source.spliterator();
+		while (!acc.found && spliterator.tryAdvance(t -> {
+			if (predicate.test(t)) {
+				acc.result = t;
+				acc.found = true;
+			}
+		}))
+			;
+		return acc.found ? Optional.of(acc.result) : Optional.empty();
+	}
+
+	/**
+	 * predicateを満たすいずれかの要素を返します。逐次実行ではfindFirstと同じです。
+	 * 並列に探す場合はParallel.findAnyを使います。
+	 */
+	public static <T> Optional<T> findAny(Predicate<? super T> predicate, Iterable<T> source) {
+		return findFirst(predicate, source);
+	}
+
+	/**
+	 * n番目(0から数えます)の要素を返します。
+	 * sourceが添字で読み出せる場合は、読み飛ばさずに直接取り出します。
+	 */
+	public static <T> Optional<T> nth(long n, Iterable<T> source) {
+		if (n < 0)
+			throw new IllegalArgumentException("n must be >= 0");
+		Indexed<T> indexed = Indexed.of(source);
+		if (indexed != null)
+			return n < indexed.size() ? Optional.of(indexed.get(n)) : Optional.empty();
+		var acc = new Object() { T result; };
+		return new SkipSpliterator<>(n, source.spliterator()).tryAdvance(t -> acc.result = t) ? Optional.of(acc.result) : Optional.empty();
+	}
+
+	/**
+	 * 最後の要素を返します。sourceが添字で読み出せる場合は、最後の要素だけを読み出します。
+	 */
+	public static <T> Optional<T> last(Iterable<T> source) {
+		Indexed<T> indexed = Indexed.of(source);
+		if (indexed != null) {
+			long size = indexed.size();
+			return size > 0 ? Optional.of(indexed.get(size - 1)) : Optional.empty();
+		}
+		var acc = new Object() { T result; boolean found = false; };
+		source.spliterator().forEachRemaining(t -> {
+			acc.result = t;
+			acc.found = true;
+		});
+		return acc.found ? Optional.of(acc.result) : Optional.empty();
+	}
+
 	public static <T> boolean allMatch(Predicate<T> predicate, Iterable<T> source) {
-		for (T t : source)
-			if (!predicate.test(t))
-				return false;
-		return true;
+		return !anyMatch(predicate.negate(), source);
 	}
 	
 	public static <T> boolean anyMatch(Predicate<T> predicate, Iterable<T> source) {
-		for (T t : source)
-			if (predicate.test(t))
-				return true;
-		return false;
+		var match = new Object() { boolean found = false; };
+		Spliterator<T> spliterator = source.spliterator();
+		while (!match.found && spliterator.tryAdvance(t -> match.found = predicate.test(t)))
+			;
+		return match.found;
 	}
 
 	public static <T> T reduce(BinaryOperator<T> reducer, Iterable<T> source) {
-		T result = null;
-		boolean first = true;
-		for (T t : source) {
-			result = first ? t : reducer.apply(result, t);
-			first = false;
-		}
-		if (first)
+		return reduce(reducer, source.spliterator());
+	}
+
+	static <T> T reduce(BinaryOperator<T> reducer, Spliterator<T> spliterator) {
+		var acc = new Object() { T result = null; boolean first = true; };
+		spliterator.forEachRemaining(t -> {
+			acc.result = acc.first ? t : reducer.apply(acc.result, t);
+			acc.first = false;
+		});
+		if (acc.first)
 			throw new IllegalStateException("empty source");
-		return result;
+		return acc.result;
 	}
 
 	public static <T, U> U reduce(U unit, BiFunction<U, T, U> reducer, Iterable<T> source) {
-		for (T t : source)
-			unit = reducer.apply(unit, t);
-		return unit;
+		var acc = new Object() { U result = unit; };
+		source.spliterator().forEachRemaining(t -> acc.result = reducer.apply(acc.result, t));
+		return acc.result;
 	}
 	
 	public static <T> void forEach(Consumer<T> body, Iterable<T> source) {
-		source.forEach(body);
+		source.spliterator().forEachRemaining(body);
+	}
+
+	/**
+	 * sourceをsize個ずつまとめてbodyに渡します。最後はsize個未満になることがあります。
+	 * bodyに渡すリストは使い回すので、bodyから戻った後は参照しないでください。
+	 * <pre>
+	 * forEachBatch(1000, rows -> insertAll(rows), source);
+	 * </pre>
+	 */
+	public static <T> void forEachBatch(int size, Consumer<List<T>> body, Iterable<T> source) {
+		if (size <= 0)
+			throw new IllegalArgumentException("size must be > 0");
+		List<T> batch = new ArrayList<>(size);
+		source.spliterator().forEachRemaining(t -> {
+			batch.add(t);
+			if (batch.size() >= size) {
+				body.accept(batch);
+				batch.clear();
+			}
+		});
+		if (!batch.isEmpty())
+			body.accept(batch);
 	}
 	
 	public static <T> int count(Iterable<T> source) {
-		return reduce(0, (a, b) -> ++a, source);
+		var acc = new Object() { int count = 0; };
+		source.spliterator().forEachRemaining(t -> ++acc.count);
+		return acc.count;
 	}
 	
 	public static int sum(Iterable<Integer> source) {
-		return reduce(0, Integer::sum, source);
+		if (source instanceof IntIterable ints)
+			return IntIterables.sum(ints);
+		var acc = new Object() { int sum = 0; };
+		source.spliterator().forEachRemaining(i -> acc.sum += i);
+		return acc.sum;
 	}
 	
 	public static <T extends Comparable<T>> T max(Iterable<T> source) {
@@ -383,23 +1252,84 @@ public class Iterables {
 		return min(Comparator.naturalOrder(), source);
 	}
 
+	/**
+	 * 最大の要素が複数ある場合は最初のものを返します。
+	 * sourceが添字で読み出せてcomparatorの順に整列済み(SORTED)であれば、
+	 * 最後の要素と等しい先頭の要素を二分探索で求めるので、すべての要素を比較しません。
+	 */
 	public static <T> T max(Comparator<T> comparator, Iterable<T> source) {
-		return reduce((a, b) -> comparator.compare(a, b) < 0 ? b : a, source);
+		Spliterator<T> spliterator = source.spliterator();
+		Indexed<T> indexed = Indexed.of(source);
+		if (indexed != null && sortedBy(comparator, spliterator)) {
+			long size = indexed.size();
+			if (size == 0)
+				throw new IllegalStateException("empty source");
+			T max = indexed.get(size - 1);
+			long low = 0, high = size - 1;
+			while (low < high) {
+				long mid = (low + high) >>> 1;
+				if (comparator.compare(indexed.get(mid), max) < 0)
+					low = mid + 1;
+				else
+					high = mid;
+			}
+			return indexed.get(low);
+		}
+		return reduce((a, b) -> comparator.compare(a, b) < 0 ? b : a, spliterator);
 	}
 	
+	/**
+	 * sourceがcomparatorの順に整列済み(SORTED)であれば最初の要素だけを読み出して返します。
+	 */
 	public static <T> T min(Comparator<T> comparator, Iterable<T> source) {
-		return reduce((a, b) -> comparator.compare(a, b) > 0 ? b : a, source);
+		Spliterator<T> spliterator = source.spliterator();
+		if (sortedBy(comparator, spliterator)) {
+			var acc = new Object() { T result; };
+			if (!spliterator.tryAdvance(t -> acc.result = t))
+				throw new IllegalStateException("empty source");
+			return acc.result;
+		}
+		return reduce((a, b) -> comparator.compare(a, b) > 0 ? b : a, spliterator);
+	}
+
+	static boolean sortedBy(Comparator<?> comparator, Spliterator<?> spliterator) {
+		if (!spliterator.hasCharacteristics(Spliterator.SORTED))
+			return false;
+		Comparator<?> sorted = spliterator.getComparator();
+		return sorted == null ? comparator == Comparator.naturalOrder() : sorted.equals(comparator);
 	}
 	
 	public static <T> Collection<T> collection(Supplier<Collection<T>> constructor, Iterable<T> source) {
 		Collection<T> result = constructor.get();
-		for (T element : source)
-			result.add(element);
+		source.spliterator().forEachRemaining(result::add);
+		return result;
+	}
+
+	static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+	/**
+	 * サイズがわかっている場合はそのサイズを、わからない場合は-1を返します。
+	 */
+	static int exactSize(Spliterator<?> spliterator) {
+		long size = spliterator.getExactSizeIfKnown();
+		return size <= MAX_ARRAY_SIZE ? (int)size : -1;
+	}
+
+	static int hashCapacity(int size) {
+		return size < 0 ? 16 : (int)Math.min(size / 0.75 + 1, MAX_ARRAY_SIZE);
+	}
+
+	static <T> ArrayList<T> arrayList(Spliterator<T> spliterator) {
+		int size = exactSize(spliterator);
+		ArrayList<T> result = size >= 0 ? new ArrayList<>(size) : new ArrayList<>();
+		spliterator.forEachRemaining(result::add);
 		return result;
 	}
 
 	public static <T> ArrayList<T> arrayList(Iterable<T> source) {
-		return (ArrayList<T>)collection(ArrayList::new, source);
+		if (source instanceof Collection<T> collection)
+			return new ArrayList<>(collection);
+		return arrayList(source.spliterator());
 	}
 	
 	public static <T> LinkedList<T> linkedList(Iterable<T> source) {
@@ -407,7 +1337,10 @@ public class Iterables {
 	}
 		
 	public static <T> HashSet<T> hashSet(Iterable<T> source) {
-		return (HashSet<T>)collection(HashSet::new, source);
+		Spliterator<T> spliterator = source.spliterator();
+		HashSet<T> result = new HashSet<>(hashCapacity(exactSize(spliterator)));
+		spliterator.forEachRemaining(result::add);
+		return result;
 	}
 	
 	public static <T extends Comparable<T>> TreeSet<T> treeSet(Iterable<T> source) {
@@ -419,47 +1352,225 @@ public class Iterables {
 	}
 	
 	public static <T> T[] array(IntFunction<T[]> constructor, Iterable<T> source) {
-		return arrayList(source).toArray(constructor);
+		Spliterator<T> spliterator = source.spliterator();
+		int size = exactSize(spliterator);
+		if (size < 0)
+			return arrayList(spliterator).toArray(constructor);
+		T[] result = constructor.apply(size);
+		var acc = new Object() { int i = 0; };
+		spliterator.forEachRemaining(t -> result[acc.i++] = t);
+		return result;
 	}
 	
 	public static int[] array(Iterable<Integer> source) {
-		ArrayList<Integer> list = arrayList(source);
-		int size = list.size();
-		int[] result = new int[size];
-		for (int i = 0; i < size; ++i)
-			result[i] = list.get(i);
-		return result;
+		if (source instanceof IntIterable ints)
+			return IntIterables.array(ints);
+		Spliterator<Integer> spliterator = source.spliterator();
+		int exact = exactSize(spliterator);
+		var acc = new Object() { int[] result = new int[exact >= 0 ? exact : 16]; int size = 0; };
+		spliterator.forEachRemaining(i -> {
+			if (acc.size >= acc.result.length)
+				acc.result = Arrays.copyOf(acc.result, Math.max(16, acc.size * 2));
+			acc.result[acc.size++] = i;
+		});
+		return acc.size == acc.result.length ? acc.result : Arrays.copyOf(acc.result, acc.size);
 	}
 	
 	public static <T, K, V> Map<K, V> map(Supplier<Map<K, V>> constructor, Function<T, K> key, Function<T, V> value, Iterable<T> source) {
-		Map<K, V> result = constructor.get();
-		for (T element : source)
-			result.put(key.apply(element), value.apply(element));
+		return toMap(constructor.get(), key, value, source.spliterator());
+	}
+
+	static <T, K, V, M extends Map<K, V>> M toMap(M result, Function<T, K> key, Function<T, V> value, Spliterator<T> spliterator) {
+		spliterator.forEachRemaining(element -> result.put(key.apply(element), value.apply(element)));
 		return result;
 	}
 
 	public static <T, K, V> HashMap<K, V> hashMap(Function<T, K> key, Function<T, V> value, Iterable<T> source) {
-		return (HashMap<K, V>)map(HashMap::new, key, value, source);
+		Spliterator<T> spliterator = source.spliterator();
+		return toMap(new HashMap<>(hashCapacity(exactSize(spliterator))), key, value, spliterator);
 	}
 
 	public static <T, K, V> TreeMap<K, V> treeMap(Function<T, K> key, Function<T, V> value, Iterable<T> source) {
 		return (TreeMap<K, V>)map(TreeMap::new, key, value, source);
 	}
+
+	/**
+	 * sourceの要素をkeyで分類したリストのマップを返します。各リストの要素はsourceの順です。
+	 */
+	public static <T, K> HashMap<K, List<T>> groupBy(Function<T, K> key, Iterable<T> source) {
+		return groupBy(key, source.spliterator());
+	}
+
+	static <T, K> HashMap<K, List<T>> groupBy(Function<T, K> key, Spliterator<T> spliterator) {
+		HashMap<K, List<T>> result = new HashMap<>();
+		spliterator.forEachRemaining(t -> result.computeIfAbsent(key.apply(t), k -> new ArrayList<>()).add(t));
+		return result;
+	}
+
+	/**
+	 * sourceの要素をkeyで分類し、分類ごとにunitから始めてreducerで集計します。
+	 * 要素をリストに保持しないので、分類ごとの集計値だけが必要な場合はgroupBy(key, source)より省メモリです。
+	 * reducerがnullを返すとNullPointerExceptionをスローします(nullを許すとその分類が結果から消えるためです)。
+	 * <pre>
+	 * groupBy(s -> s.length(), 0, (a, s) -> a + 1, list("a", "bb", "c")) -> {1=2, 2=1}
+	 * </pre>
+	 */
+	public static <T, K, U> HashMap<K, U> groupBy(Function<T, K> key, U unit, BiFunction<U, T, U> reducer, Iterable<T> source) {
+		HashMap<K, U> result = new HashMap<>();
+		source.spliterator().forEachRemaining(t -> result.compute(key.apply(t),
+			(k, v) -> Objects.requireNonNull(reducer.apply(v == null ? unit : v, t), "reducer returned null")));
+		return result;
+	}
+
+	/**
+	 * sourceの要素をkeyで分類し、分類ごとにdownstreamで集計します。
+	 */
+	public static <T, K, A, R> HashMap<K, R> groupBy(Function<T, K> key, Collector<? super T, A, R> downstream, Iterable<T> source) {
+		HashMap<K, A> containers = new HashMap<>();
+		Supplier<A> supplier = downstream.supplier();
+		BiConsumer<A, ? super T> accumulator = downstream.accumulator();
+		source.spliterator().forEachRemaining(t -> accumulator.accept(containers.computeIfAbsent(key.apply(t), k -> supplier.get()), t));
+		HashMap<K, R> result = new HashMap<>(hashCapacity(containers.size()));
+		containers.forEach((k, a) -> result.put(k, downstream.finisher().apply(a)));
+		return result;
+	}
+
+	/**
+	 * sourceの要素をkeyで分類し、分類ごとの要素数を返します。
+	 * 集計中はint[1]で数えるので、要素ごとにIntegerを生成しません。
+	 */
+	public static <T, K> HashMap<K, Integer> countBy(Function<T, K> key, Iterable<T> source) {
+		return countBy(key, source.spliterator());
+	}
+
+	static <T, K> HashMap<K, Integer> countBy(Function<T, K> key, Spliterator<T> spliterator) {
+		HashMap<K, int[]> counts = new HashMap<>();
+		spliterator.forEachRemaining(t -> ++counts.computeIfAbsent(key.apply(t), k -> new int[1])[0]);
+		HashMap<K, Integer> result = new HashMap<>(hashCapacity(counts.size()));
+		counts.forEach((k, c) -> result.put(k, c[0]));
+		return result;
+	}
+
+	/**
+	 * sourceから重複する要素を取り除いたIterableを返します。要素は最初に現れた順に返します。
+	 * 読み出しのたびにそれまでに現れた要素をHashSetに保持します。
+	 */
+	public static <T> Iterable<T> distinct(Iterable<T> source) {
+		return splittable(() -> filter(new HashSet<T>()::add, source).iterator(),
+			() -> new FilterSpliterator<T>(new HashSet<T>()::add, source.spliterator()) {
+
+				@Override
+				public Spliterator<T> trySplit() {
+					return null;
+				}
+
+				@Override
+				public int characteristics() {
+					return super.characteristics() | DISTINCT;
+				}
+
+			});
+	}
+
+	/**
+	 * 複数の要素を持つキーの値です。値が1個のキーは要素そのものを値とし、リストを生成しません。
+	 */
+	@SuppressWarnings("serial")
+	static class Bucket extends ArrayList<Object> {}
+
+	/**
+	 * sourceの要素をkeyで引く表を作ります。sourceの大きさがわかっていれば表の大きさをあらかじめ確保します。
+	 */
+	static <T, K> HashMap<K, Object> hashTable(Function<T, K> key, Iterable<T> source) {
+		Spliterator<T> spliterator = source.spliterator();
+		HashMap<K, Object> table = new HashMap<>(hashCapacity(exactSize(spliterator)));
+		spliterator.forEachRemaining(t -> table.merge(key.apply(t), t, (old, e) -> {
+			if (old instanceof Bucket bucket) {
+				bucket.add(e);
+				return bucket;
+			}
+			Bucket bucket = new Bucket();
+			bucket.add(old);
+			bucket.add(e);
+			return bucket;
+		}));
+		return table;
+	}
+
+	@SuppressWarnings("unchecked")
+	static <L, R, K, U> Iterable<U> hashJoin(boolean outer, Function<L, K> leftKey, Function<R, K> rightKey,
+			BiFunction<L, R, U> joiner, Iterable<L> left, Iterable<R> right) {
+		return () -> {
+			HashMap<K, Object> table = hashTable(rightKey, right);
+			return flatMap(l -> {
+				Object matched = table.get(leftKey.apply(l));
+				if (matched == null)
+					return outer ? Collections.singletonList(joiner.apply(l, null)) : Collections.<U>emptyList();
+				if (matched instanceof Bucket bucket)
+					return map(r -> joiner.apply(l, (R)r), bucket);
+				return Collections.singletonList(joiner.apply(l, (R)matched));
+			}, left).iterator();
+		};
+	}
+
+	/**
+	 * leftとrightの要素のうち、leftKeyとrightKeyが等しい組をjoinerで結合した結果を返します(内部結合)。
+	 * iterator()を呼び出すたびにrightから表を作り、leftを順に読み出して表を引きます。
+	 * 結果はleftの順で、同じleftの要素に対してはrightの順です。
+	 * rightには小さい方を指定してください。rightはnullを含んではいけません。
+	 */
+	public static <L, R, K, U> Iterable<U> join(Function<L, K> leftKey, Function<R, K> rightKey,
+			BiFunction<L, R, U> joiner, Iterable<L> left, Iterable<R> right) {
+		return hashJoin(false, leftKey, rightKey, joiner, left, right);
+	}
+
+	/**
+	 * joinと同じですが、rightに対応する要素がないleftの要素はjoiner(l, null)として返します(左外部結合)。
+	 */
+	public static <L, R, K, U> Iterable<U> leftJoin(Function<L, K> leftKey, Function<R, K> rightKey,
+			BiFunction<L, R, U> joiner, Iterable<L> left, Iterable<R> right) {
+		return hashJoin(true, leftKey, rightKey, joiner, left, right);
+	}
+
+	public record CoGroup<L, R>(List<L> left, List<R> right) {}
+
+	/**
+	 * leftとrightの要素をそれぞれキーで分類し、キーごとに両方の要素のリストを返します。
+	 * 一方にしかないキーの場合、他方のリストは空になります。
+	 */
+	public static <L, R, K> HashMap<K, CoGroup<L, R>> coGroup(Function<L, K> leftKey, Function<R, K> rightKey,
+			Iterable<L> left, Iterable<R> right) {
+		HashMap<K, CoGroup<L, R>> result = new HashMap<>();
+		left.spliterator().forEachRemaining(l -> result.computeIfAbsent(leftKey.apply(l),
+			k -> new CoGroup<>(new ArrayList<>(), new ArrayList<>())).left().add(l));
+		right.spliterator().forEachRemaining(r -> result.computeIfAbsent(rightKey.apply(r),
+			k -> new CoGroup<>(new ArrayList<>(), new ArrayList<>())).right().add(r));
+		return result;
+	}
 	
 	public static String cpstring(Iterable<Integer> source) {
-		StringBuilder sb = new StringBuilder();
-		for (int cp : source)
-			sb.appendCodePoint(cp);
+		if (source instanceof IntIterable ints)
+			return IntIterables.cpstring(ints);
+		Spliterator<Integer> spliterator = source.spliterator();
+		int exact = exactSize(spliterator);
+		StringBuilder sb = new StringBuilder(exact >= 0 ? exact : 16);
+		spliterator.forEachRemaining(cp -> sb.appendCodePoint(cp));
 		return sb.toString();
 	}
 
+	/**
+	 * sourceの要素数がわかっている場合は、各要素が1文字以上あるとみなした長さのStringBuilderを用意します。
+	 */
 	public static <T> String string(String begin, String separator, String end, Iterable<T> source) {
-		StringBuilder sb = new StringBuilder(begin);
-		String sep = "";
-		for (T e : source) {
-			sb.append(sep).append(e);
-			sep = separator;
-		}
+		Spliterator<T> spliterator = source.spliterator();
+		int exact = exactSize(spliterator);
+		long capacity = exact < 0 ? 16 : begin.length() + end.length() + (long)exact * (separator.length() + 1);
+		StringBuilder sb = new StringBuilder((int)Math.min(capacity, MAX_ARRAY_SIZE)).append(begin);
+		var acc = new Object() { String sep = ""; };
+		spliterator.forEachRemaining(e -> {
+			sb.append(acc.sep).append(e);
+			acc.sep = separator;
+		});
 		sb.append(end);
 		return sb.toString();
 	}
@@ -497,21 +1608,161 @@ public class Iterables {
         return first;
     }
     
+    /**
+     * 件数、合計、平均、分散、最小値、最大値を1パスで集計します。
+     * 平均と分散はWelfordの方法で逐次更新するので、値が大きくても桁落ちしません。
+     * merge()で別のStatisticsを併合できるので、並列に集計した部分結果を結合できます。
+     * 要素がないとき、平均と分散は0、最小値は正の無限大、最大値は負の無限大になります。
+     */
     public static class Statistics {
     	long count;
     	double sum;
-    	double squareSum;
+    	double mean;
+    	double m2;
+    	double min = Double.POSITIVE_INFINITY;
+    	double max = Double.NEGATIVE_INFINITY;
     	
     	public void add(Number n) {
+    		add(n.doubleValue());
+    	}
+
+    	public void add(double value) {
     		++count;
-    		double value = n.doubleValue();
     		sum += value;
-    		squareSum += value * value;
+    		double delta = value - mean;
+    		mean += delta / count;
+    		m2 += delta * (value - mean);
+    		min = Math.min(min, value);
+    		max = Math.max(max, value);
+    	}
+
+    	/**
+    	 * otherの集計結果をこのStatisticsに併合します(Chanらの方法)。
+    	 */
+    	public Statistics merge(Statistics other) {
+    		if (other.count == 0)
+    			return this;
+    		if (count == 0) {
+    			count = other.count;
+    			sum = other.sum;
+    			mean = other.mean;
+    			m2 = other.m2;
+    			min = other.min;
+    			max = other.max;
+    			return this;
+    		}
+    		long n = count + other.count;
+    		double delta = other.mean - mean;
+    		mean += delta * other.count / n;
+    		m2 += other.m2 + delta * delta * ((double)count * other.count / n);
+    		count = n;
+    		sum += other.sum;
+    		min = Math.min(min, other.min);
+    		max = Math.max(max, other.max);
+    		return this;
+    	}
+
+    	public long count() {
+    		return count;
+    	}
+
+    	public double sum() {
+    		return sum;
+    	}
+
+    	public double mean() {
+    		return mean;
+    	}
+
+    	/**
+    	 * 母分散を返します。
+    	 */
+    	public double variance() {
+    		return count > 0 ? m2 / count : 0;
+    	}
+
+    	/**
+    	 * 不偏分散を返します。要素が1個以下のときはNaNを返します。
+    	 */
+    	public double sampleVariance() {
+    		return count > 1 ? m2 / (count - 1) : Double.NaN;
+    	}
+
+    	public double standardDeviation() {
+    		return Math.sqrt(variance());
+    	}
+
+    	public double min() {
+    		return min;
+    	}
+
+    	public double max() {
+    		return max;
+    	}
+
+    	@Override
+    	public String toString() {
+    		return "Statistics[count=%d, sum=%s, mean=%s, variance=%s, min=%s, max=%s]"
+    			.formatted(count, sum, mean, variance(), min, max);
     	}
     }
     
     public static <T extends Number> Statistics statistics(Iterable<T> source) {
-    	return prog0(new Statistics(), s -> source.forEach(e -> s.add(e)));
+    	if (source instanceof IntIterable ints)
+    		return IntIterables.statistics(ints);
+    	if (source instanceof LongIterable longs)
+    		return LongIterables.statistics(longs);
+    	if (source instanceof DoubleIterable doubles)
+    		return DoubleIterables.statistics(doubles);
+    	return prog0(new Statistics(), s -> source.spliterator().forEachRemaining(e -> s.add(e)));
+    }
+
+    /**
+     * sourceの分位点を近似するQuantileSketchを返します。
+     * 要素を保持しないので、sortで全体を整列するより少ないメモリで分位点を求められます。
+     */
+    public static <T extends Number> QuantileSketch quantileSketch(int k, Iterable<T> source) {
+    	return quantileSketch(new QuantileSketch(k), source.spliterator());
+    }
+
+    static <T extends Number> QuantileSketch quantileSketch(QuantileSketch sketch, Spliterator<T> spliterator) {
+    	if (spliterator instanceof Spliterator.OfInt ints)
+    		ints.forEachRemaining((int i) -> sketch.add(i));
+    	else if (spliterator instanceof Spliterator.OfLong longs)
+    		longs.forEachRemaining((long l) -> sketch.add(l));
+    	else if (spliterator instanceof Spliterator.OfDouble doubles)
+    		doubles.forEachRemaining((double d) -> sketch.add(d));
+    	else
+    		spliterator.forEachRemaining(e -> sketch.add(e));
+    	return sketch;
+    }
+
+    public static <T extends Number> QuantileSketch quantileSketch(Iterable<T> source) {
+    	return quantileSketch(QuantileSketch.DEFAULT_K, source);
+    }
+
+    /**
+     * sourceの異なる要素の数を近似するHyperLogLogを返します。
+     * hashSetと違い、使用するメモリは要素の数によらず一定です。
+     */
+    public static <T> HyperLogLog hyperLogLog(int precision, Iterable<T> source) {
+    	return hyperLogLog(new HyperLogLog(precision), source.spliterator());
+    }
+
+    static <T> HyperLogLog hyperLogLog(HyperLogLog sketch, Spliterator<T> spliterator) {
+    	if (spliterator instanceof Spliterator.OfInt ints)
+    		ints.forEachRemaining((int i) -> sketch.add(i));
+    	else if (spliterator instanceof Spliterator.OfLong longs)
+    		longs.forEachRemaining((long l) -> sketch.add(l));
+    	else if (spliterator instanceof Spliterator.OfDouble doubles)
+    		doubles.forEachRemaining((double d) -> sketch.add(d));
+    	else
+    		spliterator.forEachRemaining(e -> sketch.add(e));
+    	return sketch;
+    }
+
+    public static <T> HyperLogLog hyperLogLog(Iterable<T> source) {
+    	return hyperLogLog(HyperLogLog.DEFAULT_PRECISION, source);
     }
 
 }
@@ -0,0 +1,95 @@
+package saka1029.iterables;
+
+import java.nio.ByteBuffer;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.LongConsumer;
+
+/**
+ * long値をヒープの外に保持する、追加のみ可能な列です。
+ * 何億個もの中間結果を保持してもヒープ(old領域)を圧迫しません。
+ * LongIterableでもあるので、コピーせずにそのまま各メソッドのsourceとして渡せます。
+ * spliterator()はSIZEDで、添字の範囲で均等に分割できます。
+ * 読み出し中に要素を追加した場合、その要素が読み出されるかどうかは不定です。
+ * <pre>
+ * LongColumn column = LongIterables.column(source);
+ * </pre>
+ */
+public class LongColumn extends OffHeapColumn implements LongIterable {
+
+	public LongColumn() {
+		this(DEFAULT_SEGMENT_SHIFT);
+	}
+
+	LongColumn(int shift) {
+		super(8, shift);
+	}
+
+	public void add(long value) {
+		ByteBuffer segment = next();
+		segment.putLong(offset(size), value);
+		++size;
+	}
+
+	public LongColumn addAll(LongIterable source) {
+		source.spliterator().forEachRemaining((long value) -> add(value));
+		return this;
+	}
+
+	public long get(long index) {
+		checkIndex(index);
+		return segment(index).getLong(offset(index));
+	}
+
+	class LongColumnSpliterator extends SegmentSpliterator<LongColumnSpliterator> implements Spliterator.OfLong {
+
+		LongColumnSpliterator(long from, long to) {
+			super(from, to);
+		}
+
+		@Override
+		LongColumnSpliterator create(long from, long to) {
+			return new LongColumnSpliterator(from, to);
+		}
+
+		@Override
+		public boolean tryAdvance(LongConsumer action) {
+			if (from >= to)
+				return false;
+			action.accept(segment(from).getLong(offset(from)));
+			++from;
+			return true;
+		}
+
+		/**
+		 * セグメントごとにまとめて読み出します。
+		 */
+		@Override
+		public void forEachRemaining(LongConsumer action) {
+			long i = from;
+			while (i < to) {
+				ByteBuffer segment = segment(i);
+				long end = Math.min(to, segmentEnd(i));
+				for (int o = offset(i); i < end; ++i, o += 8)
+					action.accept(segment.getLong(o));
+			}
+			from = to;
+		}
+	}
+
+	@Override
+	public Spliterator.OfLong spliterator() {
+		return new LongColumnSpliterator(0, size);
+	}
+
+	@Override
+	public PrimitiveIterator.OfLong iterator() {
+		return Spliterators.iterator(spliterator());
+	}
+
+	@Override
+	public String toString() {
+		return "LongColumn[size=" + size + "]";
+	}
+}
@@ -0,0 +1,21 @@
+package saka1029.iterables;
+
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+/**
+ * long値をボクシングせずに列挙するIterableです。
+ * Iterable&lt;Long&gt;でもあるので、そのままIterablesの各メソッドに渡すことができます。
+ */
+@FunctionalInterface
+public interface LongIterable extends Iterable<Long> {
+
+	@Override
+	PrimitiveIterator.OfLong iterator();
+
+	@Override
+	default Spliterator.OfLong spliterator() {
+		return Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED);
+	}
+}
@@ -0,0 +1,281 @@
+package saka1029.iterables;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongFunction;
+import java.util.function.LongPredicate;
+import java.util.function.LongUnaryOperator;
+import java.util.function.ToLongFunction;
+
+import saka1029.iterables.Iterables.Statistics;
+
+/**
+ * LongIterableを生成、変換、集計するメソッドを提供します。
+ * 各メソッドはIterablesの同名のメソッドと同じ意味を持ちますが、要素をボクシングしません。
+ */
+public class LongIterables {
+
+	private LongIterables() {}
+
+	public static LongIterable of(long... elements) {
+		return () -> new PrimitiveIterator.OfLong() {
+
+			int i = 0;
+
+			@Override
+			public boolean hasNext() {
+				return i < elements.length;
+			}
+
+			@Override
+			public long nextLong() {
+				if (i >= elements.length)
+					throw new NoSuchElementException();
+				return elements[i++];
+			}
+
+		};
+	}
+
+	/**
+	 * Iterable&lt;Long&gt;をLongIterableに変換します。
+	 * sourceがすでにLongIterableであればそのまま返します。
+	 */
+	public static LongIterable longs(Iterable<Long> source) {
+		if (source instanceof LongIterable longs)
+			return longs;
+		return () -> new PrimitiveIterator.OfLong() {
+
+			final Iterator<Long> iterator = source.iterator();
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public long nextLong() {
+				return iterator.next();
+			}
+
+		};
+	}
+
+	public static <T> LongIterable mapToLong(ToLongFunction<T> mapper, Iterable<T> source) {
+		return () -> new PrimitiveIterator.OfLong() {
+
+			final Iterator<T> iterator = source.iterator();
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public long nextLong() {
+				return mapper.applyAsLong(iterator.next());
+			}
+
+		};
+	}
+
+	public static <U> Iterable<U> mapToObj(LongFunction<U> mapper, LongIterable source) {
+		return () -> new Iterator<U>() {
+
+			final PrimitiveIterator.OfLong iterator = source.iterator();
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public U next() {
+				return mapper.apply(iterator.nextLong());
+			}
+
+		};
+	}
+
+	public static LongIterable range(long start, long end) {
+		return () -> new PrimitiveIterator.OfLong() {
+
+			long i = start;
+
+			@Override
+			public boolean hasNext() {
+				return i < end;
+			}
+
+			@Override
+			public long nextLong() {
+				if (i >= end)
+					throw new NoSuchElementException();
+				return i++;
+			}
+
+		};
+	}
+
+	public static LongIterable rangeClosed(long start, long end) {
+		return () -> new PrimitiveIterator.OfLong() {
+
+			long i = start;
+			boolean hasNext = start <= end;
+
+			@Override
+			public boolean hasNext() {
+				return hasNext;
+			}
+
+			@Override
+			public long nextLong() {
+				if (!hasNext)
+					throw new NoSuchElementException();
+				hasNext = i < end;
+				return i++;
+			}
+
+		};
+	}
+
+	public static LongIterable map(LongUnaryOperator mapper, LongIterable source) {
+		return () -> new PrimitiveIterator.OfLong() {
+
+			final PrimitiveIterator.OfLong iterator = source.iterator();
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public long nextLong() {
+				return mapper.applyAsLong(iterator.nextLong());
+			}
+
+		};
+	}
+
+	public static LongIterable filter(LongPredicate selector, LongIterable source) {
+		return () -> new PrimitiveIterator.OfLong() {
+
+			final PrimitiveIterator.OfLong iterator = source.iterator();
+			boolean hasNext = advance();
+			long next;
+
+			boolean advance() {
+				while (iterator.hasNext())
+					if (selector.test(next = iterator.nextLong()))
+						return true;
+				return false;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return hasNext;
+			}
+
+			@Override
+			public long nextLong() {
+				if (!hasNext)
+					throw new NoSuchElementException();
+				long result = next;
+				hasNext = advance();
+				return result;
+			}
+
+		};
+	}
+
+	public static LongIterable skip(int skip, LongIterable source) {
+		return () -> {
+			PrimitiveIterator.OfLong iterator = source.iterator();
+			for (int i = 0; i < skip && iterator.hasNext(); ++i)
+				iterator.nextLong();
+			return iterator;
+		};
+	}
+
+	public static LongIterable limit(int limit, LongIterable source) {
+		return () -> new PrimitiveIterator.OfLong() {
+
+			final PrimitiveIterator.OfLong iterator = source.iterator();
+			int i = 0;
+
+			@Override
+			public boolean hasNext() {
+				return i < limit && iterator.hasNext();
+			}
+
+			@Override
+			public long nextLong() {
+				++i;
+				return iterator.nextLong();
+			}
+
+		};
+	}
+
+	// Terminal operations
+
+	public static long reduce(LongBinaryOperator reducer, LongIterable source) {
+		PrimitiveIterator.OfLong iterator = source.iterator();
+		if (!iterator.hasNext())
+			throw new IllegalStateException("empty source");
+		long result = iterator.nextLong();
+		while (iterator.hasNext())
+			result = reducer.applyAsLong(result, iterator.nextLong());
+		return result;
+	}
+
+	public static long reduce(long unit, LongBinaryOperator reducer, LongIterable source) {
+		for (PrimitiveIterator.OfLong iterator = source.iterator(); iterator.hasNext();)
+			unit = reducer.applyAsLong(unit, iterator.nextLong());
+		return unit;
+	}
+
+	public static int count(LongIterable source) {
+		int count = 0;
+		for (PrimitiveIterator.OfLong iterator = source.iterator(); iterator.hasNext(); iterator.nextLong())
+			++count;
+		return count;
+	}
+
+	public static long sum(LongIterable source) {
+		long sum = 0;
+		for (PrimitiveIterator.OfLong iterator = source.iterator(); iterator.hasNext();)
+			sum += iterator.nextLong();
+		return sum;
+	}
+
+	public static long[] array(LongIterable source) {
+		long[] result = new long[16];
+		int size = 0;
+		for (PrimitiveIterator.OfLong iterator = source.iterator(); iterator.hasNext();) {
+			if (size >= result.length)
+				result = Arrays.copyOf(result, size * 2);
+			result[size++] = iterator.nextLong();
+		}
+		return size == result.length ? result : Arrays.copyOf(result, size);
+	}
+
+	/**
+	 * sourceをヒープの外に保持するLongColumnに集めます。
+	 * 結果はLongIterableなので、そのまま次の処理のsourceにできます。
+	 */
+	public static LongColumn column(LongIterable source) {
+		return new LongColumn().addAll(source);
+	}
+
+	public static Statistics statistics(LongIterable source) {
+		Statistics result = new Statistics();
+		for (PrimitiveIterator.OfLong iterator = source.iterator(); iterator.hasNext();)
+			result.add(iterator.nextLong());
+		return result;
+	}
+
+}
@@ -0,0 +1,248 @@
+package saka1029.iterables;
+
+import static saka1029.iterables.IterableSpliterators.splittable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * パイプラインの各段を通過した要素数と、要素を取り出すのにかかった時間を計測します。
+ * 計測したい段の出力をprobe()で包みます。probe()は上流から下流の順に呼び出してください。
+ * <pre>
+ * Metrics m = new Metrics();
+ * Iterable&lt;String&gt; p = m.probe("filter", filter(s -> s.length() > 3, m.probe("map", map(i -> "x" + i, m.probe("source", range(0, 1000))))));
+ * count(p);
+ * m.snapshot().forEach(System.out::println);
+ * </pre>
+ * 時間は要素をsampleInterval個取り出すごとに1回だけ計測し、要素数を掛けて推定します。
+ * 各段の時間は上流の時間を含むので、snapshot()は直前の段との差をその段の時間として報告します。
+ * 計測中はforEachRemainingもtryAdvanceの繰り返しで実行します。
+ * 計測しない場合はdisabled()を使えば、probe()はsourceをそのまま返すので実行時のコストはありません。
+ * JDK Flight Recorderで記録している場合は、spliteratorごとに読み出しを終えたときStageEventを1回記録します。
+ */
+public class Metrics {
+
+	public static final int DEFAULT_SAMPLE_INTERVAL = 64;
+
+	static final Metrics DISABLED = new Metrics(1) {
+
+		@Override
+		public <T> Iterable<T> probe(String name, Iterable<T> source) {
+			return source;
+		}
+
+	};
+
+	final int sampleInterval;
+	final List<Stage> stages = new ArrayList<>();
+
+	public Metrics(int sampleInterval) {
+		if (sampleInterval <= 0)
+			throw new IllegalArgumentException("sampleInterval must be > 0");
+		this.sampleInterval = sampleInterval;
+	}
+
+	public Metrics() {
+		this(DEFAULT_SAMPLE_INTERVAL);
+	}
+
+	/**
+	 * 何も計測しないMetricsを返します。probe()はsourceをそのまま返します。
+	 */
+	public static Metrics disabled() {
+		return DISABLED;
+	}
+
+	static class Stage {
+
+		final String name;
+		final int order;
+		final LongAdder elements = new LongAdder();
+		final LongAdder samples = new LongAdder();
+		final LongAdder sampledNanos = new LongAdder();
+
+		Stage(String name, int order) {
+			this.name = name;
+			this.order = order;
+		}
+	}
+
+	/**
+	 * ある段の計測結果です。
+	 * elementsはその段が出力した要素数、selectivityは直前の段の要素数に対する割合(最初の段はNaN)です。
+	 * inclusiveNanosはその段とその上流で費やした推定時間、exclusiveNanosはそのうちその段だけで費やした推定時間です。
+	 */
+	public record StageMetrics(String name, long elements, double selectivity, long inclusiveNanos, long exclusiveNanos) {}
+
+	/**
+	 * sourceから取り出した要素を数えるIterableを返します。
+	 */
+	public <T> Iterable<T> probe(String name, Iterable<T> source) {
+		Stage stage;
+		synchronized (stages) {
+			stage = new Stage(name, stages.size());
+			stages.add(stage);
+		}
+		return splittable(
+			() -> Spliterators.iterator(new ProbeSpliterator<>(stage, sampleInterval, source.spliterator())),
+			() -> new ProbeSpliterator<>(stage, sampleInterval, source.spliterator()));
+	}
+
+	/**
+	 * 現時点の計測結果を上流の段から順に返します。
+	 */
+	public List<StageMetrics> snapshot() {
+		List<Stage> copy;
+		synchronized (stages) {
+			copy = new ArrayList<>(stages);
+		}
+		copy.sort(Comparator.comparingInt(s -> s.order));
+		List<StageMetrics> result = new ArrayList<>(copy.size());
+		long previousElements = -1, previousNanos = 0;
+		for (Stage stage : copy) {
+			long elements = stage.elements.sum();
+			long samples = stage.samples.sum();
+			long inclusive = samples == 0 ? 0 : (long)((double)stage.sampledNanos.sum() / samples * elements);
+			double selectivity = previousElements < 0 ? Double.NaN
+				: previousElements == 0 ? 0 : (double)elements / previousElements;
+			result.add(new StageMetrics(stage.name, elements, selectivity, inclusive, Math.max(0, inclusive - previousNanos)));
+			previousElements = elements;
+			previousNanos = inclusive;
+		}
+		return result;
+	}
+
+	/**
+	 * すべての段の計測値を0に戻します。
+	 */
+	public void reset() {
+		synchronized (stages) {
+			for (Stage stage : stages) {
+				stage.elements.reset();
+				stage.samples.reset();
+				stage.sampledNanos.reset();
+			}
+		}
+	}
+
+	@Name("saka1029.iterables.Stage")
+	@Label("Pipeline Stage")
+	@Category("Iterables")
+	static class StageEvent extends Event {
+
+		@Label("Stage")
+		String stage;
+
+		@Label("Elements")
+		long elements;
+
+		@Label("Sampled Time")
+		@Timespan
+		long sampledNanos;
+	}
+
+	/**
+	 * 要素を数え、sampleInterval個ごとに上流から1個取り出す時間を計ります。
+	 * 下流の処理時間を含めないように、取り出した要素はいったん保持してから下流に渡します。
+	 */
+	static class ProbeSpliterator<T> implements Spliterator<T>, Consumer<T> {
+
+		final Stage stage;
+		final int sampleInterval;
+		final Spliterator<T> source;
+		long count = 0, nanos = 0;
+		T current;
+		boolean finished = false;
+
+		ProbeSpliterator(Stage stage, int sampleInterval, Spliterator<T> source) {
+			this.stage = stage;
+			this.sampleInterval = sampleInterval;
+			this.source = source;
+		}
+
+		@Override
+		public void accept(T t) {
+			current = t;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action) {
+			boolean found;
+			if (count % sampleInterval == 0) {
+				long start = System.nanoTime();
+				found = source.tryAdvance(this);
+				long elapsed = System.nanoTime() - start;
+				if (found) {
+					stage.samples.increment();
+					stage.sampledNanos.add(elapsed);
+					nanos += elapsed;
+				}
+			} else
+				found = source.tryAdvance(this);
+			if (!found) {
+				finish();
+				return false;
+			}
+			++count;
+			stage.elements.increment();
+			T t = current;
+			current = null;
+			action.accept(t);
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super T> action) {
+			while (tryAdvance(action))
+				;
+		}
+
+		/**
+		 * 読み出し終えた後もtryAdvanceは呼び出されることがあるので、StageEventは1回だけ記録します。
+		 */
+		void finish() {
+			if (finished)
+				return;
+			finished = true;
+			StageEvent event = new StageEvent();
+			if (event.shouldCommit()) {
+				event.stage = stage.name;
+				event.elements = count;
+				event.sampledNanos = nanos;
+				event.commit();
+			}
+		}
+
+		@Override
+		public Spliterator<T> trySplit() {
+			Spliterator<T> prefix = source.trySplit();
+			return prefix == null ? null : new ProbeSpliterator<>(stage, sampleInterval, prefix);
+		}
+
+		@Override
+		public long estimateSize() {
+			return source.estimateSize();
+		}
+
+		@Override
+		public int characteristics() {
+			return source.characteristics();
+		}
+
+		@Override
+		public Comparator<? super T> getComparator() {
+			return source.getComparator();
+		}
+	}
+}
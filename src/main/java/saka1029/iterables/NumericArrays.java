@@ -0,0 +1,438 @@
+package saka1029.iterables;
+
+import java.util.Objects;
+import java.util.function.DoublePredicate;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongPredicate;
+import java.util.function.LongUnaryOperator;
+
+import saka1029.iterables.Iterables.Statistics;
+
+/**
+ * int[]、long[]、double[]を直接集計するメソッドを提供します。
+ * IntIterablesなどと違い、要素ごとにIntConsumerを呼び出さず、配列を添字で走査します。
+ * sum、min、maxのループは4要素ずつ独立した変数に集計して、加算や比較の依存の連鎖を短くしています。
+ * SIMD命令を明示的には使いません(Vector APIは使わず、ベクトル化するかどうかはJITコンパイラに任せます)。
+ * 各メソッドには配列全体を対象とするものと、[from, to)の範囲を対象とするものがあります。
+ * <pre>
+ * double[] latencies = ...;
+ * Statistics s = NumericArrays.statistics(latencies);
+ * </pre>
+ */
+public class NumericArrays {
+
+	private NumericArrays() {}
+
+	/**
+	 * statisticsはこの大きさのブロックごとに平均と偏差平方和を2パスで求め、
+	 * Statistics.mergeで併合します。ブロックはキャッシュに収まる大きさにします。
+	 */
+	static final int BLOCK_SIZE = 4096;
+
+	/**
+	 * 合計をlongで返します。intの合計があふれることはありません。
+	 */
+	public static long sum(int[] a, int from, int to) {
+		Objects.checkFromToIndex(from, to, a.length);
+		long s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+		int i = from;
+		for (int end = to - 3; i < end; i += 4) {
+			s0 += a[i];
+			s1 += a[i + 1];
+			s2 += a[i + 2];
+			s3 += a[i + 3];
+		}
+		for (; i < to; ++i)
+			s0 += a[i];
+		return s0 + s1 + s2 + s3;
+	}
+
+	public static long sum(int[] a) {
+		return sum(a, 0, a.length);
+	}
+
+	public static long sum(long[] a, int from, int to) {
+		Objects.checkFromToIndex(from, to, a.length);
+		long s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+		int i = from;
+		for (int end = to - 3; i < end; i += 4) {
+			s0 += a[i];
+			s1 += a[i + 1];
+			s2 += a[i + 2];
+			s3 += a[i + 3];
+		}
+		for (; i < to; ++i)
+			s0 += a[i];
+		return s0 + s1 + s2 + s3;
+	}
+
+	public static long sum(long[] a) {
+		return sum(a, 0, a.length);
+	}
+
+	/**
+	 * 合計を返します。4つの部分和に分けて足すので、先頭から順に足した結果とは丸め誤差が異なることがあります。
+	 */
+	public static double sum(double[] a, int from, int to) {
+		Objects.checkFromToIndex(from, to, a.length);
+		double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+		int i = from;
+		for (int end = to - 3; i < end; i += 4) {
+			s0 += a[i];
+			s1 += a[i + 1];
+			s2 += a[i + 2];
+			s3 += a[i + 3];
+		}
+		for (; i < to; ++i)
+			s0 += a[i];
+		return (s0 + s1) + (s2 + s3);
+	}
+
+	public static double sum(double[] a) {
+		return sum(a, 0, a.length);
+	}
+
+	static void checkNotEmpty(int from, int to) {
+		if (from >= to)
+			throw new IllegalStateException("empty source");
+	}
+
+	public static int min(int[] a, int from, int to) {
+		Objects.checkFromToIndex(from, to, a.length);
+		checkNotEmpty(from, to);
+		int m0 = a[from], m1 = m0, m2 = m0, m3 = m0;
+		int i = from;
+		for (int end = to - 3; i < end; i += 4) {
+			m0 = Math.min(m0, a[i]);
+			m1 = Math.min(m1, a[i + 1]);
+			m2 = Math.min(m2, a[i + 2]);
+			m3 = Math.min(m3, a[i + 3]);
+		}
+		for (; i < to; ++i)
+			m0 = Math.min(m0, a[i]);
+		return Math.min(Math.min(m0, m1), Math.min(m2, m3));
+	}
+
+	public static int min(int[] a) {
+		return min(a, 0, a.length);
+	}
+
+	public static int max(int[] a, int from, int to) {
+		Objects.checkFromToIndex(from, to, a.length);
+		checkNotEmpty(from, to);
+		int m0 = a[from], m1 = m0, m2 = m0, m3 = m0;
+		int i = from;
+		for (int end = to - 3; i < end; i += 4) {
+			m0 = Math.max(m0, a[i]);
+			m1 = Math.max(m1, a[i + 1]);
+			m2 = Math.max(m2, a[i + 2]);
+			m3 = Math.max(m3, a[i + 3]);
+		}
+		for (; i < to; ++i)
+			m0 = Math.max(m0, a[i]);
+		return Math.max(Math.max(m0, m1), Math.max(m2, m3));
+	}
+
+	public static int max(int[] a) {
+		return max(a, 0, a.length);
+	}
+
+	public static long min(long[] a, int from, int to) {
+		Objects.checkFromToIndex(from, to, a.length);
+		checkNotEmpty(from, to);
+		long m0 = a[from], m1 = m0, m2 = m0, m3 = m0;
+		int i = from;
+		for (int end = to - 3; i < end; i += 4) {
+			m0 = Math.min(m0, a[i]);
+			m1 = Math.min(m1, a[i + 1]);
+			m2 = Math.min(m2, a[i + 2]);
+			m3 = Math.min(m3, a[i + 3]);
+		}
+		for (; i < to; ++i)
+			m0 = Math.min(m0, a[i]);
+		return Math.min(Math.min(m0, m1), Math.min(m2, m3));
+	}
+
+	public static long min(long[] a) {
+		return min(a, 0, a.length);
+	}
+
+	public static long max(long[] a, int from, int to) {
+		Objects.checkFromToIndex(from, to, a.length);
+		checkNotEmpty(from, to);
+		long m0 = a[from], m1 = m0, m2 = m0, m3 = m0;
+		int i = from;
+		for (int end = to - 3; i < end; i += 4) {
+			m0 = Math.max(m0, a[i]);
+			m1 = Math.max(m1, a[i + 1]);
+			m2 = Math.max(m2, a[i + 2]);
+			m3 = Math.max(m3, a[i + 3]);
+		}
+		for (; i < to; ++i)
+			m0 = Math.max(m0, a[i]);
+		return Math.max(Math.max(m0, m1), Math.max(m2, m3));
+	}
+
+	public static long max(long[] a) {
+		return max(a, 0, a.length);
+	}
+
+	/**
+	 * 最小値を返します。Math.minと同じく、NaNを含む場合はNaNを返します。
+	 */
+	public static double min(double[] a, int from, int to) {
+		Objects.checkFromToIndex(from, to, a.length);
+		checkNotEmpty(from, to);
+		double m0 = a[from], m1 = m0, m2 = m0, m3 = m0;
+		int i = from;
+		for (int end = to - 3; i < end; i += 4) {
+			m0 = Math.min(m0, a[i]);
+			m1 = Math.min(m1, a[i + 1]);
+			m2 = Math.min(m2, a[i + 2]);
+			m3 = Math.min(m3, a[i + 3]);
+		}
+		for (; i < to; ++i)
+			m0 = Math.min(m0, a[i]);
+		return Math.min(Math.min(m0, m1), Math.min(m2, m3));
+	}
+
+	public static double min(double[] a) {
+		return min(a, 0, a.length);
+	}
+
+	/**
+	 * 最大値を返します。Math.maxと同じく、NaNを含む場合はNaNを返します。
+	 */
+	public static double max(double[] a, int from, int to) {
+		Objects.checkFromToIndex(from, to, a.length);
+		checkNotEmpty(from, to);
+		double m0 = a[from], m1 = m0, m2 = m0, m3 = m0;
+		int i = from;
+		for (int end = to - 3; i < end; i += 4) {
+			m0 = Math.max(m0, a[i]);
+			m1 = Math.max(m1, a[i + 1]);
+			m2 = Math.max(m2, a[i + 2]);
+			m3 = Math.max(m3, a[i + 3]);
+		}
+		for (; i < to; ++i)
+			m0 = Math.max(m0, a[i]);
+		return Math.max(Math.max(m0, m1), Math.max(m2, m3));
+	}
+
+	public static double max(double[] a) {
+		return max(a, 0, a.length);
+	}
+
+	/**
+	 * ブロックの集計結果をresultに併合します。
+	 */
+	static void merge(Statistics result, int count, double sum, double m2, double min, double max) {
+		Statistics block = new Statistics();
+		block.count = count;
+		block.sum = sum;
+		block.mean = sum / count;
+		block.m2 = m2;
+		block.min = min;
+		block.max = max;
+		result.merge(block);
+	}
+
+	public static Statistics statistics(int[] a, int from, int to) {
+		Objects.checkFromToIndex(from, to, a.length);
+		Statistics result = new Statistics();
+		for (int start = from; start < to; start += BLOCK_SIZE) {
+			int end = Math.min(to, start + BLOCK_SIZE), n = end - start;
+			double mean = (double)sum(a, start, end) / n;
+			double d0 = 0, d1 = 0, d2 = 0, d3 = 0;
+			int i = start;
+			for (int e = end - 3; i < e; i += 4) {
+				double x0 = a[i] - mean, x1 = a[i + 1] - mean, x2 = a[i + 2] - mean, x3 = a[i + 3] - mean;
+				d0 += x0 * x0;
+				d1 += x1 * x1;
+				d2 += x2 * x2;
+				d3 += x3 * x3;
+			}
+			for (; i < end; ++i) {
+				double x = a[i] - mean;
+				d0 += x * x;
+			}
+			merge(result, n, mean * n, (d0 + d1) + (d2 + d3), min(a, start, end), max(a, start, end));
+		}
+		return result;
+	}
+
+	public static Statistics statistics(int[] a) {
+		return statistics(a, 0, a.length);
+	}
+
+	public static Statistics statistics(long[] a, int from, int to) {
+		Objects.checkFromToIndex(from, to, a.length);
+		Statistics result = new Statistics();
+		for (int start = from; start < to; start += BLOCK_SIZE) {
+			int end = Math.min(to, start + BLOCK_SIZE), n = end - start;
+			double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+			int i = start;
+			for (int e = end - 3; i < e; i += 4) {
+				s0 += a[i];
+				s1 += a[i + 1];
+				s2 += a[i + 2];
+				s3 += a[i + 3];
+			}
+			for (; i < end; ++i)
+				s0 += a[i];
+			double sum = (s0 + s1) + (s2 + s3), mean = sum / n;
+			double d0 = 0, d1 = 0, d2 = 0, d3 = 0;
+			i = start;
+			for (int e = end - 3; i < e; i += 4) {
+				double x0 = a[i] - mean, x1 = a[i + 1] - mean, x2 = a[i + 2] - mean, x3 = a[i + 3] - mean;
+				d0 += x0 * x0;
+				d1 += x1 * x1;
+				d2 += x2 * x2;
+				d3 += x3 * x3;
+			}
+			for (; i < end; ++i) {
+				double x = a[i] - mean;
+				d0 += x * x;
+			}
+			merge(result, n, sum, (d0 + d1) + (d2 + d3), min(a, start, end), max(a, start, end));
+		}
+		return result;
+	}
+
+	public static Statistics statistics(long[] a) {
+		return statistics(a, 0, a.length);
+	}
+
+	/**
+	 * Statistics.addで1要素ずつ集計した場合と同じ結果を丸め誤差の範囲で返します。
+	 */
+	public static Statistics statistics(double[] a, int from, int to) {
+		Objects.checkFromToIndex(from, to, a.length);
+		Statistics result = new Statistics();
+		for (int start = from; start < to; start += BLOCK_SIZE) {
+			int end = Math.min(to, start + BLOCK_SIZE), n = end - start;
+			double sum = sum(a, start, end), mean = sum / n;
+			double d0 = 0, d1 = 0, d2 = 0, d3 = 0;
+			int i = start;
+			for (int e = end - 3; i < e; i += 4) {
+				double x0 = a[i] - mean, x1 = a[i + 1] - mean, x2 = a[i + 2] - mean, x3 = a[i + 3] - mean;
+				d0 += x0 * x0;
+				d1 += x1 * x1;
+				d2 += x2 * x2;
+				d3 += x3 * x3;
+			}
+			for (; i < end; ++i) {
+				double x = a[i] - mean;
+				d0 += x * x;
+			}
+			merge(result, n, sum, (d0 + d1) + (d2 + d3), min(a, start, end), max(a, start, end));
+		}
+		return result;
+	}
+
+	public static Statistics statistics(double[] a) {
+		return statistics(a, 0, a.length);
+	}
+
+	public static int count(IntPredicate predicate, int[] a, int from, int to) {
+		Objects.checkFromToIndex(from, to, a.length);
+		int count = 0;
+		for (int i = from; i < to; ++i)
+			if (predicate.test(a[i]))
+				++count;
+		return count;
+	}
+
+	public static int count(IntPredicate predicate, int[] a) {
+		return count(predicate, a, 0, a.length);
+	}
+
+	public static int count(LongPredicate predicate, long[] a, int from, int to) {
+		Objects.checkFromToIndex(from, to, a.length);
+		int count = 0;
+		for (int i = from; i < to; ++i)
+			if (predicate.test(a[i]))
+				++count;
+		return count;
+	}
+
+	public static int count(LongPredicate predicate, long[] a) {
+		return count(predicate, a, 0, a.length);
+	}
+
+	public static int count(DoublePredicate predicate, double[] a, int from, int to) {
+		Objects.checkFromToIndex(from, to, a.length);
+		int count = 0;
+		for (int i = from; i < to; ++i)
+			if (predicate.test(a[i]))
+				++count;
+		return count;
+	}
+
+	public static int count(DoublePredicate predicate, double[] a) {
+		return count(predicate, a, 0, a.length);
+	}
+
+	/**
+	 * aの[from, to)の各要素にmapperを適用した結果をdestinationの同じ添字に書き込み、destinationを返します。
+	 * destinationにaを渡せば、その範囲だけをその場で書き換えます。
+	 */
+	public static int[] map(IntUnaryOperator mapper, int[] a, int from, int to, int[] destination) {
+		Objects.checkFromToIndex(from, to, a.length);
+		if (destination.length < to)
+			throw new IllegalArgumentException("destination too small");
+		for (int i = from; i < to; ++i)
+			destination[i] = mapper.applyAsInt(a[i]);
+		return destination;
+	}
+
+	public static int[] map(IntUnaryOperator mapper, int[] a, int[] destination) {
+		if (destination.length < a.length)
+			throw new IllegalArgumentException("destination too small");
+		return map(mapper, a, 0, a.length, destination);
+	}
+
+	public static int[] map(IntUnaryOperator mapper, int[] a) {
+		return map(mapper, a, new int[a.length]);
+	}
+
+	public static long[] map(LongUnaryOperator mapper, long[] a, int from, int to, long[] destination) {
+		Objects.checkFromToIndex(from, to, a.length);
+		if (destination.length < to)
+			throw new IllegalArgumentException("destination too small");
+		for (int i = from; i < to; ++i)
+			destination[i] = mapper.applyAsLong(a[i]);
+		return destination;
+	}
+
+	public static long[] map(LongUnaryOperator mapper, long[] a, long[] destination) {
+		if (destination.length < a.length)
+			throw new IllegalArgumentException("destination too small");
+		return map(mapper, a, 0, a.length, destination);
+	}
+
+	public static long[] map(LongUnaryOperator mapper, long[] a) {
+		return map(mapper, a, new long[a.length]);
+	}
+
+	public static double[] map(DoubleUnaryOperator mapper, double[] a, int from, int to, double[] destination) {
+		Objects.checkFromToIndex(from, to, a.length);
+		if (destination.length < to)
+			throw new IllegalArgumentException("destination too small");
+		for (int i = from; i < to; ++i)
+			destination[i] = mapper.applyAsDouble(a[i]);
+		return destination;
+	}
+
+	public static double[] map(DoubleUnaryOperator mapper, double[] a, double[] destination) {
+		if (destination.length < a.length)
+			throw new IllegalArgumentException("destination too small");
+		return map(mapper, a, 0, a.length, destination);
+	}
+
+	public static double[] map(DoubleUnaryOperator mapper, double[] a) {
+		return map(mapper, a, new double[a.length]);
+	}
+}
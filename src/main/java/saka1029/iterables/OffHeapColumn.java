@@ -0,0 +1,105 @@
+package saka1029.iterables;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Spliterator;
+
+/**
+ * 数値をヒープの外(ダイレクトByteBuffer)に保持する列の共通部分です。
+ * 要素は2<sup>shift</sup>個ずつのセグメントに格納し、一杯になったらセグメントを追加します。
+ * 既存のセグメントはコピーしないので、大きくなっても再割り当てのコストはかかりません。
+ * セグメントのメモリは、列が参照されなくなった後にGCがByteBufferを回収したときに解放されます。
+ */
+abstract class OffHeapColumn {
+
+	static final int DEFAULT_SEGMENT_SHIFT = 16;
+
+	final int width, shift, mask;
+	ByteBuffer[] segments = new ByteBuffer[0];
+	int segmentCount = 0;
+	long size = 0;
+
+	OffHeapColumn(int width, int shift) {
+		if (shift < 0 || shift > 24)
+			throw new IllegalArgumentException("shift must be in [0, 24]");
+		this.width = width;
+		this.shift = shift;
+		this.mask = (1 << shift) - 1;
+	}
+
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * すべてのセグメントを手放します。
+	 */
+	public void clear() {
+		segments = new ByteBuffer[0];
+		segmentCount = 0;
+		size = 0;
+	}
+
+	ByteBuffer segment(long index) {
+		return segments[(int)(index >>> shift)];
+	}
+
+	int offset(long index) {
+		return ((int)index & mask) * width;
+	}
+
+	long segmentEnd(long index) {
+		return ((index >>> shift) + 1) << shift;
+	}
+
+	void checkIndex(long index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("index " + index + " out of bounds for size " + size);
+	}
+
+	/**
+	 * 次の要素を書き込むセグメントを返します。必要であればセグメントを追加します。
+	 */
+	ByteBuffer next() {
+		if (size == (long)segmentCount << shift) {
+			if (segmentCount >= segments.length)
+				segments = Arrays.copyOf(segments, Math.max(4, segmentCount * 2));
+			segments[segmentCount++] = ByteBuffer.allocateDirect((1 << shift) * width).order(ByteOrder.nativeOrder());
+		}
+		return segments[(int)(size >>> shift)];
+	}
+
+	/**
+	 * 列の[from, to)の範囲を読み出すSpliteratorの共通部分です。
+	 */
+	abstract static class SegmentSpliterator<S extends SegmentSpliterator<S>> {
+
+		long from;
+		final long to;
+
+		SegmentSpliterator(long from, long to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		abstract S create(long from, long to);
+
+		public S trySplit() {
+			long mid = (from + to) >>> 1;
+			if (mid <= from)
+				return null;
+			S prefix = create(from, mid);
+			from = mid;
+			return prefix;
+		}
+
+		public long estimateSize() {
+			return to - from;
+		}
+
+		public int characteristics() {
+			return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.NONNULL;
+		}
+	}
+}
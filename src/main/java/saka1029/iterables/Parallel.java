@@ -0,0 +1,244 @@
+package saka1029.iterables;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import saka1029.iterables.Iterables.Statistics;
+
+/**
+ * Iterableの終端操作をForkJoinPool上で並列に実行します。
+ * sourceのspliterator()を分割し、分割した各部分を集計した結果をcombinerで結合します。
+ * range、IntIterables.of、List、およびそれらにIterables.mapやIterables.filterを適用したものは
+ * 効率よく分割できます。それ以外のIterableはまとめて読み出したブロック単位で分割されます。
+ * <pre>
+ * int sum = Parallel.common().sum(map(i -> i * i, range(0, 10_000_000)));
+ * </pre>
+ */
+public class Parallel {
+
+	static final Parallel COMMON = new Parallel(ForkJoinPool.commonPool());
+
+	final ForkJoinPool pool;
+
+	private Parallel(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	public static Parallel common() {
+		return COMMON;
+	}
+
+	public static Parallel of(ForkJoinPool pool) {
+		return new Parallel(pool);
+	}
+
+	static class Task<T, R> extends RecursiveTask<R> {
+
+		private static final long serialVersionUID = 1L;
+
+		final transient Spliterator<T> spliterator;
+		final long threshold;
+		final transient Function<Spliterator<T>, R> leaf;
+		final transient BinaryOperator<R> combiner;
+
+		Task(Spliterator<T> spliterator, long threshold, Function<Spliterator<T>, R> leaf, BinaryOperator<R> combiner) {
+			this.spliterator = spliterator;
+			this.threshold = threshold;
+			this.leaf = leaf;
+			this.combiner = combiner;
+		}
+
+		@Override
+		protected R compute() {
+			Spliterator<T> prefix;
+			if (spliterator.estimateSize() <= threshold || (prefix = spliterator.trySplit()) == null)
+				return leaf.apply(spliterator);
+			Task<T, R> left = new Task<>(prefix, threshold, leaf, combiner);
+			left.fork();
+			R right = new Task<>(spliterator, threshold, leaf, combiner).compute();
+			return combiner.apply(left.join(), right);
+		}
+	}
+
+	<T, R> R evaluate(Function<Spliterator<T>, R> leaf, BinaryOperator<R> combiner, Iterable<T> source) {
+		Spliterator<T> spliterator = source.spliterator();
+		long threshold = Math.max(1, spliterator.estimateSize() / (pool.getParallelism() * 4L));
+		return pool.invoke(new Task<>(spliterator, threshold, leaf, combiner));
+	}
+
+	// Terminal operations
+
+	public <T, U> U reduce(U unit, BiFunction<U, T, U> reducer, BinaryOperator<U> combiner, Iterable<T> source) {
+		return evaluate(s -> {
+			var acc = new Object() { U value = unit; };
+			s.forEachRemaining(t -> acc.value = reducer.apply(acc.value, t));
+			return acc.value;
+		}, combiner, source);
+	}
+
+	public <T> T reduce(BinaryOperator<T> reducer, Iterable<T> source) {
+		var result = evaluate(s -> {
+			var acc = new Object() { T value = null; boolean empty = true; };
+			s.forEachRemaining(t -> {
+				acc.value = acc.empty ? t : reducer.apply(acc.value, t);
+				acc.empty = false;
+			});
+			return acc;
+		}, (a, b) -> {
+			if (!a.empty && !b.empty)
+				a.value = reducer.apply(a.value, b.value);
+			return a.empty ? b : a;
+		}, source);
+		if (result.empty)
+			throw new IllegalStateException("empty source");
+		return result.value;
+	}
+
+	/**
+	 * 可変なコンテナに要素を集めます。
+	 * 分割した部分ごとにsupplierでコンテナを生成し、最後にcombinerで結合します。
+	 */
+	public <T, A> A collect(Supplier<A> supplier, BiConsumer<A, T> accumulator, BinaryOperator<A> combiner, Iterable<T> source) {
+		return evaluate(s -> {
+			A container = supplier.get();
+			s.forEachRemaining(t -> accumulator.accept(container, t));
+			return container;
+		}, combiner, source);
+	}
+
+	public <T> boolean allMatch(Predicate<T> predicate, Iterable<T> source) {
+		return !anyMatch(predicate.negate(), source);
+	}
+
+	public <T> boolean anyMatch(Predicate<T> predicate, Iterable<T> source) {
+		AtomicBoolean found = new AtomicBoolean();
+		return evaluate(s -> {
+			while (!found.get() && s.tryAdvance(t -> {
+				if (predicate.test(t))
+					found.set(true);
+			}))
+				;
+			return found.get();
+		}, (a, b) -> a || b, source);
+	}
+
+	/**
+	 * predicateを満たすいずれかの要素を返します。見つかった時点で他の部分の探索も打ち切ります。
+	 */
+	public <T> Optional<T> findAny(Predicate<? super T> predicate, Iterable<T> source) {
+		AtomicReference<T> found = new AtomicReference<>();
+		evaluate(s -> {
+			while (found.get() == null && s.tryAdvance(t -> {
+				if (predicate.test(t))
+					found.compareAndSet(null, t);
+			}))
+				;
+			return null;
+		}, (a, b) -> null, source);
+		return Optional.ofNullable(found.get());
+	}
+
+	public <T> int count(Iterable<T> source) {
+		return evaluate(s -> {
+			long size = s.getExactSizeIfKnown();
+			if (size >= 0)
+				return (int)size;
+			var acc = new Object() { int count = 0; };
+			s.forEachRemaining(t -> ++acc.count);
+			return acc.count;
+		}, Integer::sum, source);
+	}
+
+	public int sum(Iterable<Integer> source) {
+		return evaluate(s -> {
+			var acc = new Object() { int sum = 0; };
+			if (s instanceof Spliterator.OfInt ints)
+				ints.forEachRemaining((int i) -> acc.sum += i);
+			else
+				s.forEachRemaining(i -> acc.sum += i);
+			return acc.sum;
+		}, Integer::sum, source);
+	}
+
+	public <T> Collection<T> collection(Supplier<Collection<T>> constructor, Iterable<T> source) {
+		return collect(constructor, Collection::add, (a, b) -> { a.addAll(b); return a; }, source);
+	}
+
+	public <T> ArrayList<T> arrayList(Iterable<T> source) {
+		return collect(ArrayList::new, ArrayList::add, (a, b) -> { a.addAll(b); return a; }, source);
+	}
+
+	public <T, K, V> HashMap<K, V> hashMap(Function<T, K> key, Function<T, V> value, Iterable<T> source) {
+		return collect(HashMap::new, (m, t) -> m.put(key.apply(t), value.apply(t)),
+			(a, b) -> { a.putAll(b); return a; }, source);
+	}
+
+	/**
+	 * 分割した部分ごとにIterables.groupByで分類し、同じキーのリストを連結します。
+	 * 各リストの要素はsourceの順です。
+	 */
+	public <T, K> HashMap<K, List<T>> groupBy(Function<T, K> key, Iterable<T> source) {
+		return evaluate(s -> Iterables.groupBy(key, s),
+			(a, b) -> {
+				b.forEach((k, list) -> a.merge(k, list, (x, y) -> { x.addAll(y); return x; }));
+				return a;
+			}, source);
+	}
+
+	public <T, K> HashMap<K, Integer> countBy(Function<T, K> key, Iterable<T> source) {
+		return evaluate(s -> Iterables.countBy(key, s),
+			(a, b) -> {
+				b.forEach((k, count) -> a.merge(k, count, Integer::sum));
+				return a;
+			}, source);
+	}
+
+	/**
+	 * 分割した部分ごとにStatisticsを集計し、Statistics.merge()で併合します。
+	 * IntIterable、LongIterable、DoubleIterableはボクシングせずに集計します。
+	 */
+	public <T extends Number> Statistics statistics(Iterable<T> source) {
+		return evaluate(s -> {
+			Statistics statistics = new Statistics();
+			if (s instanceof Spliterator.OfInt ints)
+				ints.forEachRemaining((int i) -> statistics.add(i));
+			else if (s instanceof Spliterator.OfLong longs)
+				longs.forEachRemaining((long l) -> statistics.add(l));
+			else if (s instanceof Spliterator.OfDouble doubles)
+				doubles.forEachRemaining((double d) -> statistics.add(d));
+			else
+				s.forEachRemaining(e -> statistics.add(e));
+			return statistics;
+		}, Statistics::merge, source);
+	}
+
+	public <T extends Number> QuantileSketch quantileSketch(int k, Iterable<T> source) {
+		return evaluate(s -> Iterables.quantileSketch(new QuantileSketch(k), s), QuantileSketch::merge, source);
+	}
+
+	public <T extends Number> QuantileSketch quantileSketch(Iterable<T> source) {
+		return quantileSketch(QuantileSketch.DEFAULT_K, source);
+	}
+
+	public <T> HyperLogLog hyperLogLog(int precision, Iterable<T> source) {
+		return evaluate(s -> Iterables.hyperLogLog(new HyperLogLog(precision), s), HyperLogLog::merge, source);
+	}
+
+	public <T> HyperLogLog hyperLogLog(Iterable<T> source) {
+		return hyperLogLog(HyperLogLog.DEFAULT_PRECISION, source);
+	}
+}
@@ -0,0 +1,228 @@
+package saka1029.iterables;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * 分位点を近似するKLLスケッチです。
+ * 要素をすべて保持せず、パラメータkに比例する一定のメモリで任意の分位点を推定します。
+ * 順位の誤差はおおよそ1.7/k(k=200で1%未満)です。
+ * merge()で別のスケッチを併合できるので、並列に集計した部分結果を結合できます。
+ * <pre>
+ * double p99 = Iterables.quantileSketch(latencies).quantile(0.99);
+ * </pre>
+ */
+public class QuantileSketch {
+
+	public static final int DEFAULT_K = 200;
+
+	static final double DECAY = 2.0 / 3.0;
+
+	final int k;
+	final SplittableRandom random;
+	double[][] levels = new double[1][];
+	int[] sizes = new int[1];
+	int[] capacities = new int[1];
+	int retained = 0;
+	int totalCapacity = 0;
+	long count = 0;
+	double min = Double.POSITIVE_INFINITY;
+	double max = Double.NEGATIVE_INFINITY;
+
+	public QuantileSketch(int k) {
+		if (k < 8)
+			throw new IllegalArgumentException("k must be >= 8");
+		this.k = k;
+		this.random = new SplittableRandom();
+		this.levels[0] = new double[k];
+		updateCapacities();
+	}
+
+	public QuantileSketch() {
+		this(DEFAULT_K);
+	}
+
+	/**
+	 * 各レベルの容量を求めます。上位のレベルほど大きく、下位のレベルほど小さくなります。
+	 * レベルが増えたときだけ呼び出します。
+	 */
+	void updateCapacities() {
+		capacities = new int[levels.length];
+		totalCapacity = 0;
+		for (int h = 0; h < levels.length; ++h) {
+			int depth = levels.length - 1 - h;
+			totalCapacity += capacities[h] = Math.max(2, (int)Math.ceil(k * Math.pow(DECAY, depth)));
+		}
+	}
+
+	void append(int h, double value) {
+		if (h >= levels.length) {
+			levels = Arrays.copyOf(levels, h + 1);
+			sizes = Arrays.copyOf(sizes, h + 1);
+			updateCapacities();
+			levels[h] = new double[capacities[h]];
+		}
+		if (sizes[h] >= levels[h].length)
+			levels[h] = Arrays.copyOf(levels[h], Math.max(2, levels[h].length * 2));
+		levels[h][sizes[h]++] = value;
+		++retained;
+	}
+
+	/**
+	 * 容量を超えた最も下位のレベルを整列し、1つおきに選んだ要素を上位のレベルに送ります。
+	 * 上位のレベルの要素は重みが2倍になるので、重みの合計は変わりません。
+	 */
+	void compress() {
+		while (retained > totalCapacity) {
+			int h = 0;
+			while (sizes[h] < capacities[h])
+				++h;
+			double[] level = levels[h];
+			int size = sizes[h];
+			Arrays.sort(level, 0, size);
+			int start = size % 2;
+			for (int i = start + random.nextInt(2); i < size; i += 2)
+				append(h + 1, level[i]);
+			sizes[h] = start;
+			retained -= size - start;
+		}
+	}
+
+	public void add(double value) {
+		if (Double.isNaN(value))
+			return;
+		++count;
+		min = Math.min(min, value);
+		max = Math.max(max, value);
+		append(0, value);
+		if (retained > totalCapacity)
+			compress();
+	}
+
+	public void add(Number value) {
+		add(value.doubleValue());
+	}
+
+	/**
+	 * otherの内容をこのスケッチに併合します。otherは変更しません。
+	 */
+	public QuantileSketch merge(QuantileSketch other) {
+		int[] otherSizes = other.sizes.clone();
+		for (int h = 0; h < otherSizes.length; ++h)
+			for (int i = 0; i < otherSizes[h]; ++i)
+				append(h, other.levels[h][i]);
+		count += other.count;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+		compress();
+		return this;
+	}
+
+	public long count() {
+		return count;
+	}
+
+	public double min() {
+		return min;
+	}
+
+	public double max() {
+		return max;
+	}
+
+	/**
+	 * 保持している要素を値の昇順に並べ、各要素の重みの累積を求めます。
+	 */
+	record Weighted(double[] values, long[] cumulative) {}
+
+	Weighted weighted() {
+		int n = retained;
+		double[] values = new double[n];
+		long[] weights = new long[n];
+		int j = 0;
+		for (int h = 0; h < levels.length; ++h)
+			for (int i = 0; i < sizes[h]; ++i, ++j) {
+				values[j] = levels[h][i];
+				weights[j] = 1L << h;
+			}
+		Integer[] order = new Integer[n];
+		for (int i = 0; i < n; ++i)
+			order[i] = i;
+		Arrays.sort(order, (a, b) -> Double.compare(values[a], values[b]));
+		double[] sortedValues = new double[n];
+		long[] cumulative = new long[n];
+		long sum = 0;
+		for (int i = 0; i < n; ++i) {
+			sortedValues[i] = values[order[i]];
+			cumulative[i] = sum += weights[order[i]];
+		}
+		return new Weighted(sortedValues, cumulative);
+	}
+
+	/**
+	 * 順位がおおよそq * count()となる値を返します。
+	 * qは0以上1以下です。要素がないときはNaNを返します。
+	 */
+	public double quantile(double q) {
+		if (q < 0 || q > 1)
+			throw new IllegalArgumentException("q must be in [0, 1]");
+		if (count == 0)
+			return Double.NaN;
+		if (q == 0)
+			return min;
+		if (q == 1)
+			return max;
+		Weighted w = weighted();
+		long total = w.cumulative()[w.cumulative().length - 1];
+		double target = q * total;
+		for (int i = 0; i < w.values().length; ++i)
+			if (w.cumulative()[i] >= target)
+				return w.values()[i];
+		return max;
+	}
+
+	/**
+	 * 複数の分位点をまとめて求めます。保持している要素の整列は1回だけです。
+	 */
+	public double[] quantiles(double... qs) {
+		double[] result = new double[qs.length];
+		if (count == 0) {
+			Arrays.fill(result, Double.NaN);
+			return result;
+		}
+		Weighted w = weighted();
+		long total = w.cumulative()[w.cumulative().length - 1];
+		for (int j = 0; j < qs.length; ++j) {
+			double q = qs[j];
+			if (q < 0 || q > 1)
+				throw new IllegalArgumentException("q must be in [0, 1]");
+			int i = 0;
+			while (i < w.values().length - 1 && w.cumulative()[i] < q * total)
+				++i;
+			result[j] = q == 0 ? min : q == 1 ? max : w.values()[i];
+		}
+		return result;
+	}
+
+	/**
+	 * value以下の要素の割合を推定します。
+	 */
+	public double rank(double value) {
+		if (count == 0)
+			return Double.NaN;
+		long below = 0, total = 0;
+		for (int h = 0; h < levels.length; ++h)
+			for (int i = 0; i < sizes[h]; ++i) {
+				total += 1L << h;
+				if (levels[h][i] <= value)
+					below += 1L << h;
+			}
+		return (double)below / total;
+	}
+
+	@Override
+	public String toString() {
+		return "QuantileSketch[k=%d, count=%d, retained=%d, min=%s, max=%s]"
+			.formatted(k, count, retained, min, max);
+	}
+}
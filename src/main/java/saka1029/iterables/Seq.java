@@ -0,0 +1,404 @@
+package saka1029.iterables;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 中間操作を記録しておき、終端操作でまとめて実行するパイプラインです。
+ * 終端操作は各段をSinkとしてつなぎ、ソースから要素を押し込みます。
+ * 要素ごとにhasNext()/next()を段数分呼び出すことはありません。
+ * 連続するmap同士、filter同士、limit同士は記録する時点で1つの段に融合します。
+ * iterator()を呼び出せば従来どおりpull型でも読み出せます。
+ * <pre>
+ * int sum = Seq.of(range(0, 100)).filter(i -> i % 2 == 0).map(i -> i * i).limit(10).reduce(0, Integer::sum);
+ * </pre>
+ */
+public class Seq<T> implements Iterable<T> {
+
+	static final int MAP = 0, FILTER = 1, LIMIT = 2, SKIP = 3, FLAT_MAP = 4;
+
+	record Op(int kind, Object function, int count) {}
+
+	final Iterable<?> source;
+	final Op[] ops;
+
+	Seq(Iterable<?> source, Op[] ops) {
+		this.source = source;
+		this.ops = ops;
+	}
+
+	public static <T> Seq<T> of(Iterable<T> source) {
+		return new Seq<>(source, new Op[0]);
+	}
+
+	/**
+	 * 直前の操作と融合できる場合は融合します。
+	 * map同士は合成した1つのmapに、filter同士は論理積をとった1つのfilterに、
+	 * limit同士は小さい方のlimitにまとめます。
+	 */
+	@SuppressWarnings("unchecked")
+	<U> Seq<U> add(int kind, Object function, int count) {
+		Op last = ops.length > 0 ? ops[ops.length - 1] : null;
+		if (last != null && last.kind() == kind) {
+			Op fused = switch (kind) {
+				case MAP -> new Op(MAP, ((Function<Object, Object>)last.function()).andThen((Function<Object, Object>)function), 0);
+				case FILTER -> new Op(FILTER, ((Predicate<Object>)last.function()).and((Predicate<Object>)function), 0);
+				case LIMIT -> new Op(LIMIT, null, Math.min(last.count(), count));
+				default -> null;
+			};
+			if (fused != null) {
+				Op[] newOps = ops.clone();
+				newOps[ops.length - 1] = fused;
+				return new Seq<>(source, newOps);
+			}
+		}
+		Op[] newOps = Arrays.copyOf(ops, ops.length + 1);
+		newOps[ops.length] = new Op(kind, function, count);
+		return new Seq<>(source, newOps);
+	}
+
+	// Intermediate operations
+
+	public <U> Seq<U> map(Function<T, U> mapper) {
+		return add(MAP, mapper, 0);
+	}
+
+	public Seq<T> filter(Predicate<T> selector) {
+		return add(FILTER, selector, 0);
+	}
+
+	public Seq<T> limit(int limit) {
+		return add(LIMIT, null, limit);
+	}
+
+	public Seq<T> skip(int skip) {
+		return add(SKIP, null, skip);
+	}
+
+	public <U> Seq<U> flatMap(Function<T, Iterable<U>> flatter) {
+		return add(FLAT_MAP, flatter, 0);
+	}
+
+	// Sinks
+
+	interface Sink extends Consumer<Object> {
+		boolean cancelled();
+	}
+
+	static class MapSink implements Sink {
+
+		final Function<Object, Object> mapper;
+		final Sink downstream;
+
+		MapSink(Function<Object, Object> mapper, Sink downstream) {
+			this.mapper = mapper;
+			this.downstream = downstream;
+		}
+
+		@Override
+		public void accept(Object t) {
+			downstream.accept(mapper.apply(t));
+		}
+
+		@Override
+		public boolean cancelled() {
+			return downstream.cancelled();
+		}
+	}
+
+	static class FilterSink implements Sink {
+
+		final Predicate<Object> selector;
+		final Sink downstream;
+
+		FilterSink(Predicate<Object> selector, Sink downstream) {
+			this.selector = selector;
+			this.downstream = downstream;
+		}
+
+		@Override
+		public void accept(Object t) {
+			if (selector.test(t))
+				downstream.accept(t);
+		}
+
+		@Override
+		public boolean cancelled() {
+			return downstream.cancelled();
+		}
+	}
+
+	static class LimitSink implements Sink {
+
+		int remaining;
+		final Sink downstream;
+
+		LimitSink(int limit, Sink downstream) {
+			this.remaining = limit;
+			this.downstream = downstream;
+		}
+
+		@Override
+		public void accept(Object t) {
+			if (remaining > 0) {
+				--remaining;
+				downstream.accept(t);
+			}
+		}
+
+		@Override
+		public boolean cancelled() {
+			return remaining <= 0 || downstream.cancelled();
+		}
+	}
+
+	static class SkipSink implements Sink {
+
+		int remaining;
+		final Sink downstream;
+
+		SkipSink(int skip, Sink downstream) {
+			this.remaining = skip;
+			this.downstream = downstream;
+		}
+
+		@Override
+		public void accept(Object t) {
+			if (remaining > 0)
+				--remaining;
+			else
+				downstream.accept(t);
+		}
+
+		@Override
+		public boolean cancelled() {
+			return downstream.cancelled();
+		}
+	}
+
+	static class FlatMapSink implements Sink {
+
+		final Function<Object, Iterable<Object>> flatter;
+		final Sink downstream;
+
+		FlatMapSink(Function<Object, Iterable<Object>> flatter, Sink downstream) {
+			this.flatter = flatter;
+			this.downstream = downstream;
+		}
+
+		@Override
+		public void accept(Object t) {
+			Spliterator<Object> child = flatter.apply(t).spliterator();
+			while (!downstream.cancelled() && child.tryAdvance(downstream))
+				;
+		}
+
+		@Override
+		public boolean cancelled() {
+			return downstream.cancelled();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	Sink chain(Sink terminal) {
+		Sink sink = terminal;
+		for (int i = ops.length - 1; i >= 0; --i) {
+			Op op = ops[i];
+			switch (op.kind()) {
+				case MAP:
+					sink = new MapSink((Function<Object, Object>)op.function(), sink);
+					break;
+				case FILTER:
+					sink = new FilterSink((Predicate<Object>)op.function(), sink);
+					break;
+				case LIMIT:
+					sink = new LimitSink(op.count(), sink);
+					break;
+				case SKIP:
+					sink = new SkipSink(op.count(), sink);
+					break;
+				case FLAT_MAP:
+					sink = new FlatMapSink((Function<Object, Iterable<Object>>)op.function(), sink);
+					break;
+			}
+		}
+		return sink;
+	}
+
+	boolean shortCircuit() {
+		for (Op op : ops)
+			if (op.kind() == LIMIT)
+				return true;
+		return false;
+	}
+
+	@SuppressWarnings("unchecked")
+	void drive(Sink terminal, boolean shortCircuit) {
+		Sink head = chain(terminal);
+		Spliterator<Object> spliterator = (Spliterator<Object>)source.spliterator();
+		if (shortCircuit || shortCircuit())
+			while (!head.cancelled() && spliterator.tryAdvance(head))
+				;
+		else
+			spliterator.forEachRemaining(head);
+	}
+
+	// Pull
+
+	static final Object NULL = new Object();
+
+	class SeqSpliterator implements Spliterator<T>, Sink {
+
+		@SuppressWarnings("unchecked")
+		final Spliterator<Object> upstream = (Spliterator<Object>)source.spliterator();
+		final ArrayDeque<Object> buffer = new ArrayDeque<>();
+		final Sink head = chain(this);
+		Consumer<? super T> action = null;
+
+		@Override
+		public void accept(Object t) {
+			if (action != null)
+				action.accept(unwrap(t));
+			else
+				buffer.add(t == null ? NULL : t);
+		}
+
+		@Override
+		public boolean cancelled() {
+			return false;
+		}
+
+		@SuppressWarnings("unchecked")
+		T unwrap(Object t) {
+			return t == NULL ? null : (T)t;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action) {
+			while (buffer.isEmpty() && !head.cancelled() && upstream.tryAdvance(head))
+				;
+			if (buffer.isEmpty())
+				return false;
+			action.accept(unwrap(buffer.poll()));
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super T> action) {
+			while (!buffer.isEmpty())
+				action.accept(unwrap(buffer.poll()));
+			this.action = action;
+			while (!head.cancelled() && upstream.tryAdvance(head))
+				;
+		}
+
+		@Override
+		public Spliterator<T> trySplit() {
+			return null;
+		}
+
+		@Override
+		public long estimateSize() {
+			return upstream.estimateSize();
+		}
+
+		@Override
+		public int characteristics() {
+			return upstream.characteristics() & ORDERED;
+		}
+	}
+
+	@Override
+	public Spliterator<T> spliterator() {
+		return new SeqSpliterator();
+	}
+
+	@Override
+	public Iterator<T> iterator() {
+		return Spliterators.iterator(spliterator());
+	}
+
+	// Terminal operations
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public void forEach(Consumer<? super T> body) {
+		drive(new Sink() {
+
+			@Override
+			public void accept(Object t) {
+				body.accept((T)t);
+			}
+
+			@Override
+			public boolean cancelled() {
+				return false;
+			}
+
+		}, false);
+	}
+
+	public <U> U reduce(U unit, BiFunction<U, T, U> reducer) {
+		var acc = new Object() { U value = unit; };
+		forEach(t -> acc.value = reducer.apply(acc.value, t));
+		return acc.value;
+	}
+
+	public T reduce(BinaryOperator<T> reducer) {
+		var acc = new Object() { T value = null; boolean first = true; };
+		forEach(t -> {
+			acc.value = acc.first ? t : reducer.apply(acc.value, t);
+			acc.first = false;
+		});
+		if (acc.first)
+			throw new IllegalStateException("empty source");
+		return acc.value;
+	}
+
+	public int count() {
+		var acc = new Object() { int count = 0; };
+		forEach(t -> ++acc.count);
+		return acc.count;
+	}
+
+	@SuppressWarnings("unchecked")
+	public boolean anyMatch(Predicate<T> predicate) {
+		var acc = new Sink() {
+
+			boolean found = false;
+
+			@Override
+			public void accept(Object t) {
+				if (predicate.test((T)t))
+					found = true;
+			}
+
+			@Override
+			public boolean cancelled() {
+				return found;
+			}
+
+		};
+		drive(acc, true);
+		return acc.found;
+	}
+
+	public boolean allMatch(Predicate<T> predicate) {
+		return !anyMatch(predicate.negate());
+	}
+
+	public ArrayList<T> arrayList() {
+		ArrayList<T> result = new ArrayList<>();
+		forEach(result::add);
+		return result;
+	}
+}
@@ -0,0 +1,82 @@
+package saka1029.iterables;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 要素をバイト列に書き出し、読み戻す方法です。
+ * Iterables.externalSortが一時ファイルに要素を退避するときに使います。
+ * readはwriteが書き出したバイト列をちょうど読み切らなければなりません。
+ */
+public interface Serializer<T> {
+
+	void write(DataOutput out, T value) throws IOException;
+
+	T read(DataInput in) throws IOException;
+
+	Serializer<Integer> INTEGER = new Serializer<>() {
+
+		@Override
+		public void write(DataOutput out, Integer value) throws IOException {
+			out.writeInt(value);
+		}
+
+		@Override
+		public Integer read(DataInput in) throws IOException {
+			return in.readInt();
+		}
+
+	};
+
+	Serializer<Long> LONG = new Serializer<>() {
+
+		@Override
+		public void write(DataOutput out, Long value) throws IOException {
+			out.writeLong(value);
+		}
+
+		@Override
+		public Long read(DataInput in) throws IOException {
+			return in.readLong();
+		}
+
+	};
+
+	Serializer<Double> DOUBLE = new Serializer<>() {
+
+		@Override
+		public void write(DataOutput out, Double value) throws IOException {
+			out.writeDouble(value);
+		}
+
+		@Override
+		public Double read(DataInput in) throws IOException {
+			return in.readDouble();
+		}
+
+	};
+
+	/**
+	 * 文字列をUTF-8のバイト数とバイト列で書き出します。
+	 * DataOutput.writeUTFと違い、64KBを超える文字列も書き出せます。
+	 */
+	Serializer<String> STRING = new Serializer<>() {
+
+		@Override
+		public void write(DataOutput out, String value) throws IOException {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+
+		@Override
+		public String read(DataInput in) throws IOException {
+			byte[] bytes = new byte[in.readInt()];
+			in.readFully(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+	};
+}
@@ -0,0 +1,201 @@
+package saka1029.iterables;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+
+/**
+ * sourceを1回だけ読み出して、その要素を複数の消費者に渡します。
+ * 同じsourceに対してcount、sum、statisticsなどを別々に呼び出すと、
+ * そのたびにsourceを読み直すことになりますが、Teeを使えば読み出しは1回で済みます。
+ * <pre>
+ * Statistics s = new Statistics();
+ * HyperLogLog h = new HyperLogLog();
+ * Tee.forEach(List.<Consumer<Integer>>of(s::add, h::add), source);
+ * </pre>
+ */
+public class Tee {
+
+	private Tee() {}
+
+	/**
+	 * スレッド間で要素を受け渡す単位です。要素をまとめて渡すことでキューの操作を減らします。
+	 */
+	static final int CHUNK_SIZE = 256;
+
+	static final int DEFAULT_CAPACITY = 4096;
+
+	static final Object[] END = new Object[0];
+
+	/**
+	 * sourceの各要素を呼び出し元のスレッドでconsumersに順に渡します。
+	 */
+	public static <T> void forEach(List<? extends Consumer<? super T>> consumers, Iterable<T> source) {
+		@SuppressWarnings("unchecked")
+		Consumer<? super T>[] array = consumers.toArray(Consumer[]::new);
+		source.spliterator().forEachRemaining(e -> {
+			for (Consumer<? super T> consumer : array)
+				consumer.accept(e);
+		});
+	}
+
+	/**
+	 * sourceをcollectorで集計します。
+	 * Collectors.teeingなどで組み合わせたCollectorを渡せば、1回の読み出しで複数の集計ができます。
+	 */
+	public static <T, A, R> R collect(Collector<? super T, A, R> collector, Iterable<T> source) {
+		A container = collector.supplier().get();
+		var accumulator = collector.accumulator();
+		source.spliterator().forEachRemaining(e -> accumulator.accept(container, e));
+		return collector.finisher().apply(container);
+	}
+
+	/**
+	 * sourceを1回だけ読み出して2つのCollectorで集計し、その結果をmergerで結合します。
+	 * <pre>
+	 * double average = teeing(Collectors.summingInt(i -> i), Collectors.counting(), (s, c) -> (double)s / c, source);
+	 * </pre>
+	 */
+	public static <T, R1, R2, R> R teeing(Collector<? super T, ?, R1> first, Collector<? super T, ?, R2> second,
+			BiFunction<? super R1, ? super R2, R> merger, Iterable<T> source) {
+		return collect(Collectors.teeing(first, second, merger), source);
+	}
+
+	/**
+	 * sourceを呼び出し元のスレッドで読み出し、consumersのそれぞれに別のスレッドで要素を渡します。
+	 * 各消費者との間には最大capacity個の要素を保持する有限のキューがあり、
+	 * 遅い消費者のキューが一杯になるとsourceの読み出しを待たせます。
+	 * 各消費者には要素がsourceの順に渡ります。
+	 * すべての消費者が終了するまで戻りません。消費者またはsourceが例外をスローした場合は、
+	 * 読み出しを中断し、最初にスローされた例外を呼び出し元にスローします。
+	 * executorはconsumersの数以上のスレッドを同時に実行できなければなりません。
+	 * executorが消費者の起動を拒否した場合は、起動済みの消費者を終了させてからその例外をスローします。
+	 */
+	public static <T> void broadcast(Executor executor, int capacity, List<? extends Consumer<? super T>> consumers, Iterable<T> source) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException("capacity must be > 0");
+		int chunkSize = Math.min(CHUNK_SIZE, Math.max(1, capacity / 4));
+		int slots = Math.max(1, capacity / chunkSize);
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		CountDownLatch finished = new CountDownLatch(consumers.size());
+		List<ArrayBlockingQueue<Object[]>> queues = new ArrayList<>(consumers.size());
+		try {
+			for (Consumer<? super T> consumer : consumers) {
+				ArrayBlockingQueue<Object[]> queue = new ArrayBlockingQueue<>(slots);
+				queues.add(queue);
+				executor.execute(() -> consume(queue, consumer, failure, finished));
+			}
+		} catch (RuntimeException | Error e) {
+			// 起動済みの消費者がキューを待ったままにならないように終わりを知らせます。
+			publish(queues, END);
+			throw e;
+		}
+		var chunk = new Object() { Object[] elements = new Object[chunkSize]; int size = 0; };
+		try {
+			Spliterator<T> spliterator = source.spliterator();
+			Consumer<T> producer = e -> {
+				chunk.elements[chunk.size++] = e;
+				if (chunk.size >= chunkSize) {
+					publish(queues, chunk.elements);
+					chunk.elements = new Object[chunkSize];
+					chunk.size = 0;
+				}
+			};
+			while (failure.get() == null && spliterator.tryAdvance(producer))
+				;
+			if (chunk.size > 0 && failure.get() == null)
+				publish(queues, Arrays.copyOf(chunk.elements, chunk.size));
+		} catch (RuntimeException | Error e) {
+			failure.compareAndSet(null, e);
+		} finally {
+			publish(queues, END);
+		}
+		try {
+			finished.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			failure.compareAndSet(null, e);
+		}
+		Throwable t = failure.get();
+		if (t instanceof RuntimeException r)
+			throw r;
+		if (t instanceof Error e)
+			throw e;
+		if (t != null)
+			throw new IllegalStateException(t);
+	}
+
+	/**
+	 * 消費者ごとに新しいデーモンスレッドを起動するbroadcastです。
+	 */
+	public static <T> void broadcast(List<? extends Consumer<? super T>> consumers, Iterable<T> source) {
+		broadcast(r -> {
+			Thread thread = new Thread(r, "Tee.broadcast");
+			thread.setDaemon(true);
+			thread.start();
+		}, DEFAULT_CAPACITY, consumers, source);
+	}
+
+	/**
+	 * チャンクをすべての消費者のキューに入れます。キューが一杯なら空くまで待ちます。
+	 * チャンクは消費者の間で共有しますが、どの消費者も書き換えません。
+	 */
+	static void publish(List<ArrayBlockingQueue<Object[]>> queues, Object[] chunk) {
+		boolean interrupted = false;
+		for (ArrayBlockingQueue<Object[]> queue : queues)
+			while (true)
+				try {
+					queue.put(chunk);
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+	/**
+	 * 消費者のスレッドの本体です。
+	 * 失敗した後もENDを受け取るまでキューを空にし続けるので、読み出し側が待ったままになることはありません。
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> void consume(ArrayBlockingQueue<Object[]> queue, Consumer<? super T> consumer,
+			AtomicReference<Throwable> failure, CountDownLatch finished) {
+		boolean interrupted = false;
+		try {
+			while (true) {
+				Object[] chunk;
+				try {
+					chunk = queue.take();
+				} catch (InterruptedException e) {
+					failure.compareAndSet(null, e);
+					interrupted = true;
+					continue;
+				}
+				if (chunk == END)
+					break;
+				if (failure.get() != null)
+					continue;
+				try {
+					for (Object e : chunk)
+						consumer.accept((T)e);
+				} catch (Throwable t) {
+					failure.compareAndSet(null, t);
+				}
+			}
+		} finally {
+			finished.countDown();
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,372 @@
+package saka1029.iterables;
+
+import static saka1029.iterables.IterableSpliterators.splittable;
+import static saka1029.iterables.IterableSpliterators.splittableInt;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * 文字列を文字、コードポイント、トークンの列として扱うIterableを提供します。
+ * トークンは元の文字列を指すCharSequenceのビュー(Span)として返し、部分文字列をコピーしません。
+ * SpanのequalsとhashCodeは内容で比較するので、toString()せずにHashMapのキーにできます。
+ * <pre>
+ * HashMap&lt;Span, Integer&gt; counts = countBy(w -> w, split(Character::isWhitespace, text));
+ * </pre>
+ */
+public class TextIterables {
+
+	private TextIterables() {}
+
+	/**
+	 * sのchar値を列挙します。添字で読み出せるので、skipやnthは読み飛ばしません。
+	 * Indexedと同じく、size()とget()は呼び出した時点のsの長さと内容を反映します。
+	 * iterator()とspliterator()は作成した時点のsの長さまでを読み出します。
+	 */
+	public static IntIterable chars(CharSequence s) {
+		return new Indexed.OfInt() {
+
+			@Override
+			public long size() {
+				return s.length();
+			}
+
+			@Override
+			public int getInt(long index) {
+				return s.charAt((int)Objects.checkIndex(index, s.length()));
+			}
+
+			@Override
+			public Spliterator.OfInt spliterator() {
+				return new CodePointSpliterator(s, 0, s.length(), false);
+			}
+
+		};
+	}
+
+	/**
+	 * sのコードポイントを列挙します。IntIterables.codePointsと違い、任意のCharSequenceを受け取り、
+	 * spliterator()はサロゲートペアを分断しない位置で分割できます。
+	 */
+	public static IntIterable codePoints(CharSequence s) {
+		return splittableInt(
+			() -> Spliterators.iterator(new CodePointSpliterator(s, 0, s.length(), true)),
+			() -> new CodePointSpliterator(s, 0, s.length(), true));
+	}
+
+	/**
+	 * sの[from, to)の範囲を読み出します。codePointsがtrueであればコードポイント、falseであればchar値を返します。
+	 */
+	static class CodePointSpliterator implements Spliterator.OfInt {
+
+		final CharSequence s;
+		int from;
+		final int to;
+		final boolean codePoints;
+
+		CodePointSpliterator(CharSequence s, int from, int to, boolean codePoints) {
+			this.s = s;
+			this.from = from;
+			this.to = to;
+			this.codePoints = codePoints;
+		}
+
+		int next() {
+			char c = s.charAt(from++);
+			if (codePoints && Character.isHighSurrogate(c) && from < to) {
+				char d = s.charAt(from);
+				if (Character.isLowSurrogate(d)) {
+					++from;
+					return Character.toCodePoint(c, d);
+				}
+			}
+			return c;
+		}
+
+		@Override
+		public boolean tryAdvance(IntConsumer action) {
+			if (from >= to)
+				return false;
+			action.accept(next());
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(IntConsumer action) {
+			while (from < to)
+				action.accept(next());
+		}
+
+		@Override
+		public Spliterator.OfInt trySplit() {
+			int mid = (from + to) >>> 1;
+			if (codePoints && mid > from && mid < to
+				&& Character.isLowSurrogate(s.charAt(mid)) && Character.isHighSurrogate(s.charAt(mid - 1)))
+				++mid;
+			if (mid <= from || mid >= to)
+				return null;
+			CodePointSpliterator prefix = new CodePointSpliterator(s, from, mid, codePoints);
+			from = mid;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return to - from;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | NONNULL | (codePoints ? 0 : SIZED | SUBSIZED);
+		}
+	}
+
+	/**
+	 * 元の文字列の[start, end)を指すCharSequenceです。
+	 * equalsとhashCodeは内容で比較します。Spanどうしでは内容が同じであれば等しくなりますが、
+	 * Stringとは等しくなりません(Stringと比較する場合はcontentEqualsを使います)。
+	 */
+	public static final class Span implements CharSequence, Comparable<Span> {
+
+		final CharSequence source;
+		final int start, end;
+		int hash;
+
+		Span(CharSequence source, int start, int end) {
+			this.source = source;
+			this.start = start;
+			this.end = end;
+		}
+
+		public int start() {
+			return start;
+		}
+
+		public int end() {
+			return end;
+		}
+
+		@Override
+		public int length() {
+			return end - start;
+		}
+
+		@Override
+		public char charAt(int index) {
+			if (index < 0 || index >= end - start)
+				throw new IndexOutOfBoundsException(index);
+			return source.charAt(start + index);
+		}
+
+		@Override
+		public Span subSequence(int start, int end) {
+			if (start < 0 || end > this.end - this.start || start > end)
+				throw new IndexOutOfBoundsException();
+			return new Span(source, this.start + start, this.start + end);
+		}
+
+		public boolean contentEquals(CharSequence other) {
+			return other.length() == length() && compare(other) == 0;
+		}
+
+		/**
+		 * CharSequence.compareは同じクラスのComparableどうしではcompareToを呼び出すので、ここで比較します。
+		 */
+		int compare(CharSequence other) {
+			int length = length(), otherLength = other.length();
+			for (int i = 0, n = Math.min(length, otherLength); i < n; ++i) {
+				char a = source.charAt(start + i), b = other.charAt(i);
+				if (a != b)
+					return a - b;
+			}
+			return length - otherLength;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Span other && contentEquals(other);
+		}
+
+		/**
+		 * String.hashCodeと同じ値です。
+		 */
+		@Override
+		public int hashCode() {
+			int h = hash;
+			if (h == 0) {
+				for (int i = start; i < end; ++i)
+					h = 31 * h + source.charAt(i);
+				hash = h;
+			}
+			return h;
+		}
+
+		@Override
+		public int compareTo(Span other) {
+			return compare(other);
+		}
+
+		@Override
+		public String toString() {
+			return source.subSequence(start, end).toString();
+		}
+	}
+
+	/**
+	 * sをdelimiterを満たすコードポイントで区切ったトークンを返します。
+	 * 区切りが連続する場合や先頭と末尾の区切りは空のトークンを作りません。
+	 * <pre>
+	 * split(Character::isWhitespace, " a  bc ") -> ["a", "bc"]
+	 * </pre>
+	 */
+	public static Iterable<Span> split(IntPredicate delimiter, CharSequence s) {
+		return splittable(
+			() -> Spliterators.iterator(new SplitSpliterator(delimiter, s)),
+			() -> new SplitSpliterator(delimiter, s));
+	}
+
+	static class SplitSpliterator implements Spliterator<Span> {
+
+		final IntPredicate delimiter;
+		final CharSequence s;
+		int position = 0;
+
+		SplitSpliterator(IntPredicate delimiter, CharSequence s) {
+			this.delimiter = delimiter;
+			this.s = s;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super Span> action) {
+			int length = s.length(), start = -1;
+			while (position < length) {
+				int cp = Character.codePointAt(s, position);
+				int next = position + Character.charCount(cp);
+				if (delimiter.test(cp)) {
+					if (start >= 0) {
+						action.accept(new Span(s, start, position));
+						position = next;
+						return true;
+					}
+				} else if (start < 0)
+					start = position;
+				position = next;
+			}
+			if (start < 0)
+				return false;
+			action.accept(new Span(s, start, length));
+			return true;
+		}
+
+		@Override
+		public Spliterator<Span> trySplit() {
+			return null;
+		}
+
+		@Override
+		public long estimateSize() {
+			return Long.MAX_VALUE;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | NONNULL;
+		}
+	}
+
+	/**
+	 * sの連続するn個のコードポイントからなる部分列(文字n-gram)を先頭から順に返します。
+	 * sがn個より少ないコードポイントしか含まない場合は何も返しません。
+	 * <pre>
+	 * ngrams(2, "abcd") -> ["ab", "bc", "cd"]
+	 * </pre>
+	 */
+	public static Iterable<Span> ngrams(int n, CharSequence s) {
+		if (n <= 0)
+			throw new IllegalArgumentException("n must be > 0");
+		return splittable(
+			() -> Spliterators.iterator(new NgramSpliterator(n, s)),
+			() -> new NgramSpliterator(n, s));
+	}
+
+	static class NgramSpliterator implements Spliterator<Span> {
+
+		final int n;
+		final CharSequence s;
+		int start = 0, end = -1;
+
+		NgramSpliterator(int n, CharSequence s) {
+			this.n = n;
+			this.s = s;
+		}
+
+		int advance(int i) {
+			return i + Character.charCount(Character.codePointAt(s, i));
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super Span> action) {
+			int length = s.length();
+			if (end < 0) {
+				end = 0;
+				for (int i = 0; i < n; ++i) {
+					if (end >= length) {
+						start = end = length;
+						return false;
+					}
+					end = advance(end);
+				}
+			} else {
+				if (end >= length)
+					return false;
+				start = advance(start);
+				end = advance(end);
+			}
+			action.accept(new Span(s, start, end));
+			return true;
+		}
+
+		@Override
+		public Spliterator<Span> trySplit() {
+			return null;
+		}
+
+		@Override
+		public long estimateSize() {
+			return Long.MAX_VALUE;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | NONNULL;
+		}
+	}
+
+	/**
+	 * elementsをseparatorでつないだ文字列を返します。
+	 * elementsがCollectionの場合は先に長さを合計して、結果の長さちょうどのStringBuilderを用意します。
+	 */
+	public static String join(CharSequence separator, Iterable<? extends CharSequence> elements) {
+		int capacity = 16;
+		if (elements instanceof Collection<? extends CharSequence> collection) {
+			long total = (long)separator.length() * Math.max(0, collection.size() - 1);
+			for (CharSequence e : collection)
+				total += e.length();
+			capacity = (int)Math.min(total, Iterables.MAX_ARRAY_SIZE);
+		}
+		StringBuilder sb = new StringBuilder(capacity);
+		var acc = new Object() { boolean first = true; };
+		elements.spliterator().forEachRemaining(e -> {
+			if (!acc.first)
+				sb.append(separator);
+			sb.append(e);
+			acc.first = false;
+		});
+		return sb.toString();
+	}
+}
@@ -0,0 +1,52 @@
+package saka1029.iterables;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+
+import org.junit.Test;
+
+public class TestColumn {
+
+	@Test
+	public void testIntColumn() {
+		IntColumn column = new IntColumn(4);
+		column.addAll(IntIterables.range(0, 100));
+		assertEquals(100, column.size());
+		assertEquals(7, column.segmentCount);
+		assertEquals(42, column.get(42));
+		assertArrayEquals(IntIterables.array(IntIterables.range(0, 100)), IntIterables.array(column));
+		assertEquals(4950, IntIterables.sum(column));
+		assertEquals(4950, Parallel.common().sum(column));
+		PrimitiveIterator.OfInt iterator = column.iterator();
+		assertEquals(0, iterator.nextInt());
+		assertEquals(1, iterator.nextInt());
+		Spliterator.OfInt spliterator = column.spliterator();
+		assertEquals(100, spliterator.getExactSizeIfKnown());
+		Spliterator.OfInt prefix = spliterator.trySplit();
+		assertEquals(50, prefix.estimateSize());
+		assertEquals(50, spliterator.estimateSize());
+		column.clear();
+		assertEquals(0, column.size());
+		assertEquals(0, IntIterables.count(column));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testIndexOutOfBounds() {
+		IntIterables.column(IntIterables.of(1, 2, 3)).get(3);
+	}
+
+	@Test
+	public void testLongDoubleColumn() {
+		LongColumn longs = LongIterables.column(LongIterables.range(0, 1_000_000));
+		assertEquals(1_000_000, longs.size());
+		assertEquals(499999500000L, LongIterables.sum(longs));
+		assertEquals(999_999, longs.get(999_999));
+		DoubleColumn doubles = DoubleIterables.column(DoubleIterables.of(0.5, 1.5, 2.5));
+		assertEquals(4.5, DoubleIterables.sum(doubles), 0.0);
+		assertEquals(1.5, doubles.get(1), 0.0);
+		assertEquals(1.5, Iterables.statistics(doubles).mean(), 1e-12);
+	}
+}
@@ -0,0 +1,73 @@
+package saka1029.iterables;
+
+import static org.junit.Assert.assertEquals;
+import static saka1029.iterables.Iterables.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import saka1029.iterables.Concurrent.Sink;
+import saka1029.iterables.Concurrent.Source;
+
+public class TestConcurrent {
+
+	static void run(int threads, Runnable worker) throws InterruptedException {
+		List<Thread> list = new ArrayList<>();
+		for (int i = 0; i < threads; ++i) {
+			Thread thread = new Thread(worker);
+			list.add(thread);
+			thread.start();
+		}
+		for (Thread thread : list)
+			thread.join();
+	}
+
+	static <T> List<T> drain(int threads, int chunkSize, Iterable<T> source) throws InterruptedException {
+		Source<T> s = Concurrent.source(chunkSize, source);
+		Sink<T, ArrayList<T>> sink = Concurrent.arrayListSink();
+		run(threads, () -> {
+			Consumer<T> local = sink.local();
+			for (T e : s)
+				local.accept(e);
+		});
+		return sink.result();
+	}
+
+	@Test
+	public void testSource() throws InterruptedException {
+		List<Integer> expected = arrayList(range(0, 100_000));
+		for (Iterable<Integer> source : List.<Iterable<Integer>>of(
+				expected,
+				range(0, 100_000),
+				filter(i -> true, range(0, 100_000)),
+				new HashSet<>(expected))) {
+			List<Integer> actual = drain(4, 100, source);
+			Collections.sort(actual);
+			assertEquals(expected, actual);
+		}
+		assertEquals(List.of(), drain(3, 10, List.of()));
+	}
+
+	@Test
+	public void testSinks() throws InterruptedException {
+		Source<Integer> source = Concurrent.source(range(0, 10_000));
+		Sink<Integer, HashSet<Integer>> set = Concurrent.hashSetSink();
+		Sink<Integer, HashMap<Integer, Integer>> map = Concurrent.hashMapSink(i -> i % 10, i -> 1);
+		Sink<Integer, Integer> sum = Concurrent.sink(Collectors.summingInt(i -> i));
+		run(4, () -> source.forEach(i -> {
+			set.accept(i);
+			map.accept(i);
+			sum.accept(i);
+		}));
+		assertEquals(10_000, set.result().size());
+		assertEquals(10, map.result().size());
+		assertEquals(49_995_000, (int)sum.result());
+	}
+}
@@ -0,0 +1,27 @@
+package saka1029.iterables;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static saka1029.iterables.DoubleIterables.*;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestDoubleIterables {
+
+	@Test
+	public void testPipeline() {
+		assertArrayEquals(new double[] {1.0, 4.0},
+			array(limit(2, map(d -> d * d, filter(d -> d > 0, of(-1, 1, 2, 3))))), 0.0);
+		assertArrayEquals(new double[] {2.5}, array(skip(1, doubles(List.of(1.5, 2.5)))), 0.0);
+		assertEquals(6.0, sum(of(1, 2, 3)), 0.0);
+		assertEquals(3, count(of(1, 2, 3)));
+		assertEquals(6.0, reduce((a, b) -> a * b, of(1, 2, 3)), 0.0);
+	}
+
+	@Test
+	public void testStatistics() {
+		assertEquals(6.0, Iterables.statistics(of(1, 2, 3)).sum(), 0.0);
+	}
+}
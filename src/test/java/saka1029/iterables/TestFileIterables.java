@@ -0,0 +1,91 @@
+package saka1029.iterables;
+
+import static org.junit.Assert.assertEquals;
+import static saka1029.iterables.FileIterables.*;
+import static saka1029.iterables.Iterables.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestFileIterables {
+
+	Path path;
+
+	@Before
+	public void before() throws IOException {
+		path = Files.createTempFile("iterables", ".txt");
+	}
+
+	@After
+	public void after() throws IOException {
+		Files.deleteIfExists(path);
+	}
+
+	static List<String> strings(Iterable<ByteBuffer> records) {
+		return arrayList(map(r -> ascii(r).toString(), records));
+	}
+
+	@Test
+	public void testLines() throws IOException {
+		Files.writeString(path, "abc\r\n\ndef\nghi");
+		Iterable<ByteBuffer> lines = lines(path);
+		assertEquals(List.of("abc", "", "def", "ghi"), strings(lines));
+		assertEquals(List.of("abc", "", "def", "ghi"), strings(lines));
+		Files.writeString(path, "abc\n");
+		assertEquals(List.of("abc"), strings(lines(path)));
+		Files.writeString(path, "");
+		assertEquals(List.of(), strings(lines(path)));
+	}
+
+	@Test
+	public void testRecords() throws IOException {
+		Files.writeString(path, "a,bc,,d");
+		assertEquals(List.of("a", "bc", "", "d"), strings(records(path, (byte)',')));
+		Files.writeString(path, "0123456789");
+		assertEquals(List.of("0123", "4567", "89"), strings(records(path, 4)));
+	}
+
+	@Test
+	public void testDecode() throws IOException {
+		Files.writeString(path, "あいう\nabc", StandardCharsets.UTF_8);
+		assertEquals(List.of("あいう", "abc"), arrayList(map(r -> string(r), lines(path))));
+		CharSequence cs = ascii(last(lines(path)));
+		assertEquals(3, cs.length());
+		assertEquals('b', cs.charAt(1));
+		assertEquals("bc", cs.subSequence(1, 3).toString());
+	}
+
+	static <T> T last(Iterable<T> source) {
+		T last = null;
+		for (T e : source)
+			last = e;
+		return last;
+	}
+
+	@Test
+	public void testParallel() throws IOException {
+		List<String> expected = new ArrayList<>();
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 200_000; ++i) {
+			String line = "line" + i + "x".repeat(i % 17);
+			expected.add(line);
+			sb.append(line).append('\n');
+		}
+		Files.writeString(path, sb);
+		Parallel p = Parallel.common();
+		assertEquals(expected.size(), p.count(lines(path)));
+		assertEquals(expected, p.arrayList(map(r -> ascii(r).toString(), lines(path))));
+		int width = 10;
+		assertEquals((sb.length() + width - 1) / width, p.count(records(path, width)));
+		assertEquals(sb.toString(), String.join("", p.arrayList(map(r -> ascii(r).toString(), records(path, width)))));
+	}
+}
@@ -0,0 +1,35 @@
+package saka1029.iterables;
+
+import static org.junit.Assert.assertEquals;
+import static saka1029.iterables.Iterables.*;
+
+import org.junit.Test;
+
+public class TestHyperLogLog {
+
+	@Test
+	public void testCardinality() {
+		assertEquals(0, new HyperLogLog().cardinality());
+		assertEquals(10, hyperLogLog(map(i -> i % 10, range(0, 1000))).cardinality());
+		assertEquals(1000, hyperLogLog(map(i -> "s" + i, range(0, 1000))).cardinality(), 10);
+		int n = 1_000_000;
+		assertEquals(n, hyperLogLog(IntIterables.range(0, n)).cardinality(), 0.03 * n);
+		assertEquals(n, hyperLogLog(LongIterables.range(0, n)).cardinality(), 0.03 * n);
+	}
+
+	@Test
+	public void testMerge() {
+		int n = 500_000;
+		HyperLogLog a = hyperLogLog(range(0, n));
+		HyperLogLog b = hyperLogLog(range(n / 2, n + n / 2));
+		assertEquals(n + n / 2, a.merge(b).cardinality(), 0.03 * (n + n / 2));
+		assertEquals(n, Parallel.common().hyperLogLog(range(0, n)).cardinality(), 0.03 * n);
+		assertEquals(hyperLogLog(range(0, n)).cardinality(),
+			hyperLogLog(map(i -> (long)i, range(0, n))).cardinality());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testPrecisionMismatch() {
+		new HyperLogLog(10).merge(new HyperLogLog(12));
+	}
+}
@@ -0,0 +1,126 @@
+package saka1029.iterables;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static saka1029.iterables.IntIterables.*;
+
+import java.util.List;
+import java.util.PrimitiveIterator;
+
+import org.junit.Test;
+
+import saka1029.iterables.Iterables.Statistics;
+
+public class TestIntIterables {
+
+	@Test
+	public void testOf() {
+		assertArrayEquals(new int[] {3, 1, 2}, array(of(3, 1, 2)));
+		assertArrayEquals(new int[] {}, array(of()));
+	}
+
+	@Test
+	public void testInts() {
+		assertArrayEquals(new int[] {1, 2, 3}, array(ints(List.of(1, 2, 3))));
+		IntIterable r = range(0, 3);
+		assertSame(r, ints(r));
+	}
+
+	@Test
+	public void testRange() {
+		assertArrayEquals(new int[] {2, 3, 4}, array(range(2, 5)));
+		assertArrayEquals(new int[] {}, array(range(2, 2)));
+		assertArrayEquals(new int[] {2, 3, 4, 5}, array(rangeClosed(2, 5)));
+		assertArrayEquals(new int[] {5, 3}, array(range(5, 2, -2)));
+		assertArrayEquals(new int[] {Integer.MAX_VALUE - 1, Integer.MAX_VALUE},
+			array(rangeClosed(Integer.MAX_VALUE - 1, Integer.MAX_VALUE)));
+	}
+
+	@Test
+	public void testFlatMapToInt() {
+		IntIterable cps = flatMapToInt(s -> s.codePoints().toArray(), List.of("ab", "", "c"));
+		assertArrayEquals(new int[] {'a', 'b', 'c'}, array(cps));
+		assertEquals('a' + 'b' + 'c', Parallel.common().sum(cps));
+	}
+
+	@Test
+	public void testCodePoints() {
+		assertArrayEquals(new int[] {97, 171581, 99}, array(codePoints("a𩸽c")));
+		assertEquals("a𩸽c", cpstring(codePoints("a𩸽c")));
+	}
+
+	@Test
+	public void testMap() {
+		assertArrayEquals(new int[] {0, 10, 20}, array(map(i -> i * 10, range(0, 3))));
+		assertEquals(List.of("0", "1"), Iterables.arrayList(mapToObj(Integer::toString, range(0, 2))));
+		assertArrayEquals(new int[] {1, 2}, array(mapToInt(String::length, List.of("a", "bb"))));
+	}
+
+	@Test
+	public void testFilter() {
+		assertArrayEquals(new int[] {0, 2, 4}, array(filter(i -> i % 2 == 0, range(0, 5))));
+		assertArrayEquals(new int[] {}, array(filter(i -> i < 0, range(0, 5))));
+	}
+
+	@Test
+	public void testSkipLimit() {
+		assertArrayEquals(new int[] {3, 4}, array(skip(3, range(0, 5))));
+		assertArrayEquals(new int[] {0, 1, 2}, array(limit(3, range(0, 5))));
+		assertArrayEquals(new int[] {2, 3}, array(limit(2, skip(2, range(0, 100)))));
+	}
+
+	@Test
+	public void testReduce() {
+		assertEquals(45, reduce(0, Integer::sum, rangeClosed(1, 9)));
+		assertEquals(120, reduce((a, b) -> a * b, rangeClosed(1, 5)));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testReduceEmpty() {
+		reduce(Integer::sum, range(0, 0));
+	}
+
+	@Test
+	public void testSumCount() {
+		assertEquals(4950, sum(range(0, 100)));
+		assertEquals(100, count(range(0, 100)));
+		assertEquals(4950, Iterables.sum(range(0, 100)));
+	}
+
+	@Test
+	public void testStatistics() {
+		Statistics s = statistics(range(0, 10));
+		assertEquals(10, s.count());
+		assertEquals(45, s.sum(), 0.1);
+		assertEquals(4.5, s.mean(), 1e-9);
+		assertEquals(8.25, s.variance(), 1e-9);
+		assertEquals(0, s.min(), 0.0);
+		assertEquals(9, s.max(), 0.0);
+	}
+
+	@Test
+	public void testBoxedBridge() {
+		Iterable<Integer> boxed = range(0, 3);
+		assertEquals(List.of(0, 1, 2), Iterables.arrayList(boxed));
+		PrimitiveIterator.OfInt it = range(0, 1).iterator();
+		assertEquals(0, it.nextInt());
+		assertFalse(it.hasNext());
+	}
+
+	@Test
+	public void testBatch() {
+		List<int[]> chunks = Iterables.arrayList(chunk(4, range(0, 10)));
+		assertEquals(3, chunks.size());
+		assertArrayEquals(new int[] {8, 9}, chunks.get(2));
+		var acc = new Object() { int sum = 0, batches = 0; };
+		forEachBatch(4, (batch, n) -> {
+			++acc.batches;
+			for (int i = 0; i < n; ++i)
+				acc.sum += batch[i];
+		}, range(0, 10));
+		assertEquals(3, acc.batches);
+		assertEquals(45, acc.sum);
+	}
+}
@@ -6,14 +6,25 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static saka1029.iterables.Iterables.*;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.junit.Test;
@@ -123,6 +134,105 @@ public class TestIterables {
 				List.of(new int[] {}, new int[] {0, 1, 2}, new int[] {}))));
 	}
 	
+	@Test
+	public void testFlatMapArray() {
+		assertEquals(List.of(0, 0, 1, 0, 1, 2),
+			arrayList(flatMapArray(i -> array(Integer[]::new, range(0, i)), range(0, 4))));
+		assertEquals(List.of(0, 1, 2),
+			arrayList(flatMapArray(i -> i, List.of(new Integer[] {}, new Integer[] {0, 1}, new Integer[] {}, new Integer[] {2}))));
+		assertEquals(List.of("a", "b", "c", "d"),
+			arrayList(flatMapList(s -> List.of(s.split(",")), List.of("a,b", "c", "d"))));
+	}
+
+	@Test
+	public void testMapMulti() {
+		Iterable<Integer> m = mapMulti((Integer i, Consumer<Integer> emit) -> {
+			for (int j = 0; j < i; ++j)
+				emit.accept(j);
+		}, range(0, 4));
+		assertEquals(List.of(0, 0, 1, 0, 1, 2), arrayList(m));
+		assertEquals(List.of(0, 0, 1, 0, 1, 2), pull(m));
+		assertEquals(List.of(0, 0, 1, 0, 1, 2), push(m));
+		Iterator<Integer> it = m.iterator();
+		assertEquals(0, (int)it.next());
+		assertEquals(0, (int)it.next());
+		assertTrue(it.hasNext());
+	}
+
+	@Test
+	public void testSlidingReduce() {
+		assertEquals(List.of(6, 9, 12), arrayList(slidingReduce(3, Integer::sum, list(1, 2, 3, 4, 5))));
+		assertEquals(List.of(6, 9, 12), arrayList(slidingReduce(3, 0, (s, e) -> s + e, (s, e) -> s - e, list(1, 2, 3, 4, 5))));
+		assertEquals(List.of(), arrayList(slidingReduce(6, Integer::sum, list(1, 2, 3, 4, 5))));
+		assertEquals(List.of(2.0, 3.0, 4.0), arrayList(movingAverage(3, list(1, 2, 3, 4, 5))));
+		Random random = new Random(1);
+		List<Integer> input = arrayList(map(i -> random.nextInt(100), range(0, 1000)));
+		for (int size : new int[] {1, 2, 7, 64}) {
+			List<List<Integer>> windows = arrayList(window(size, 1, input));
+			assertEquals(arrayList(map(w -> Collections.max(w), windows)), arrayList(slidingMax(size, input)));
+			assertEquals(arrayList(map(w -> Collections.min(w), windows)), arrayList(slidingMin(size, input)));
+			assertEquals(arrayList(map(w -> sum(w), windows)), arrayList(slidingReduce(size, Integer::sum, input)));
+			assertEquals(arrayList(map(w -> sum(w), windows)), pull(slidingReduce(size, 0, (s, e) -> s + e, (s, e) -> s - e, input)));
+			assertEquals(arrayList(map(w -> Collections.max(w), windows)), pull(slidingReduce(size, Math::max, input)));
+		}
+	}
+
+	@Test
+	public void testSlidingReduceByTime() {
+		record Sample(long time, int value) {}
+		List<Sample> samples = List.of(new Sample(0, 1), new Sample(1, 2), new Sample(5, 3), new Sample(6, 4), new Sample(20, 5));
+		assertEquals(List.of(1, 3, 5, 7, 5), arrayList(map(Sample::value,
+			slidingReduce(Sample::time, 5, (a, b) -> new Sample(b.time(), a.value() + b.value()), samples))));
+		assertEquals(List.of(1, 2, 2, 2, 1), arrayList(
+			slidingReduce(Sample::time, 5, 0, (c, e) -> c + 1, (c, e) -> c - 1, samples)));
+	}
+
+	@Test
+	public void testTakeWhileDropWhile() {
+		assertEquals(List.of(1, 2), arrayList(takeWhile(i -> i < 3, list(1, 2, 3, 1))));
+		assertEquals(List.of(3, 1), arrayList(dropWhile(i -> i < 3, list(1, 2, 3, 1))));
+		assertEquals(List.of(), arrayList(dropWhile(i -> true, list(1, 2))));
+		assertEquals(List.of(0, 1, 2), arrayList(takeWhile(i -> i < 3, range(0, Integer.MAX_VALUE))));
+		assertEquals(List.of(3, 1), pull(dropWhile(i -> i < 3, list(1, 2, 3, 1))));
+		assertEquals(List.of(1, 2), pull(takeWhile(i -> i < 3, list(1, 2, 3, 1))));
+	}
+
+	@Test
+	public void testFind() {
+		assertEquals(Optional.of(0), findFirst(range(0, Integer.MAX_VALUE)));
+		assertEquals(Optional.empty(), findFirst(List.of()));
+		assertEquals(Optional.of(12), findFirst(i -> i > 10 && i % 3 == 0, range(0, Integer.MAX_VALUE)));
+		assertEquals(Optional.empty(), findAny(i -> i > 10, range(0, 5)));
+		assertEquals(Optional.of(7), nth(7, range(0, 10)));
+		assertEquals(Optional.of(7), nth(7, filter(i -> true, range(0, 10))));
+		assertEquals(Optional.empty(), nth(10, range(0, 10)));
+		assertEquals(Optional.of(9), last(range(0, 10)));
+		assertEquals(Optional.of(9), last(filter(i -> true, range(0, 10))));
+		assertEquals(Optional.empty(), last(List.of()));
+	}
+
+	@Test
+	public void testIndexedSkip() {
+		AtomicInteger calls = new AtomicInteger();
+		Iterable<Integer> page = limit(3, skip(1_000_000_000, map(i -> {
+			calls.incrementAndGet();
+			return i * 2;
+		}, range(0, Integer.MAX_VALUE))));
+		assertEquals(List.of(2_000_000_000, 2_000_000_002, 2_000_000_004), arrayList(page));
+		assertEquals(3, calls.get());
+		assertEquals(List.of(3, 4), arrayList(skip(3, list(0, 1, 2, 3, 4))));
+		assertEquals(List.of(2, 3), arrayList(limit(2, skip(2, skip(0, list(0, 1, 2, 3, 4))))));
+		assertEquals(List.of(), arrayList(skip(9, list(0, 1))));
+		assertEquals(Optional.of("c"), nth(2, map(String::valueOf, List.of('a', 'b', 'c'))));
+		assertEquals(1_000_000_000, (int)max(range(0, 1_000_000_001)));
+		assertEquals(5, (int)min(skip(5, range(0, Integer.MAX_VALUE))));
+		assertEquals(9, (int)min(Comparator.reverseOrder(), range(0, 10)));
+		List<Integer> mutable = new ArrayList<>(List.of(1, 2, 3));
+		Iterable<Integer> tail = skip(1, mutable);
+		mutable.add(4);
+		assertEquals(List.of(2, 3, 4), arrayList(tail));
+	}
+
 	@Test
 	public void testAcumulate() {
 		assertEquals(List.of(0, 1, 3, 6), arrayList(acumulate(0, Integer::sum, range(0, 4))));
@@ -190,6 +300,9 @@ public class TestIterables {
 	public void testMax() {
 		assertEquals(2, (int)max(range(0, 3)));
 		assertEquals("C", max(List.of("A", "B", "C")));
+		assertEquals(3, (int)max(Comparator.naturalOrder(), iterable(Stream.of(1, 2, 3).sorted())));
+		assertEquals(4, (int)max(skip(2, range(0, 5))));
+		assertEquals("B", max(String.CASE_INSENSITIVE_ORDER, iterable(Stream.of("a", "B", "b", "A").sorted(String.CASE_INSENSITIVE_ORDER))));
 	}
 	
 	@Test(expected = IllegalStateException.class)
@@ -201,6 +314,11 @@ public class TestIterables {
 	public void testSkip() {
 		assertEquals(List.of(3, 4), arrayList(skip(3, range(0, 5))));
 		assertEquals(List.of(), arrayList(skip(3, range(0, 3))));
+		assertEquals(List.of(0, 1, 2), arrayList(skip(-2, range(0, 3))));
+		assertEquals(List.of(1, 2, 3), arrayList(skip(-2, List.of(1, 2, 3))));
+		assertEquals(List.of(0, 1, 2), arrayList(IntIterables.skip(-2, IntIterables.range(0, 3))));
+		assertArrayEquals(new Integer[] {1, 2, 3, 4}, array(Integer[]::new, skip(-2, new LinkedList<>(List.of(1, 2, 3, 4)))));
+		assertEquals(4, skip(-2, new LinkedList<>(List.of(1, 2, 3, 4))).spliterator().estimateSize());
 	}
 	
 	@Test
@@ -208,6 +326,8 @@ public class TestIterables {
 		assertEquals(List.of(0, 1, 2), arrayList(limit(3, range(0, 5))));
 		assertEquals(List.of(0, 1, 2, 3, 4), arrayList(limit(9, range(0, 5))));
 		assertEquals(List.of(), arrayList(limit(0, range(0, 5))));
+		assertEquals(List.of(), arrayList(limit(-1, range(0, 5))));
+		assertEquals(List.of(), arrayList(limit(-1, List.of(1, 2, 3))));
 	}
 	
 	@Test
@@ -301,13 +421,469 @@ public class TestIterables {
 	@Test
 	public void testStatistics() {
 		Statistics s = statistics(range(0, 10));
-		assertEquals(10, s.count);
-		assertEquals(45, s.sum, 0.1);
-		assertEquals(285, s.squareSum, 0.1);
+		assertEquals(10, s.count());
+		assertEquals(45, s.sum(), 0.1);
+		assertEquals(4.5, s.mean(), 1e-9);
+		assertEquals(8.25, s.variance(), 1e-9);
+		assertEquals(0, s.min(), 0.0);
+		assertEquals(9, s.max(), 0.0);
 	}
 	
 	@Test
 	public void testConcat() {
 		assertArrayEquals(new int[] {0, 1, 2, 3}, array(concat(rangeClosed(0, 1), rangeClosed(2, 3))));
 	}
+
+	static <T> List<T> pull(Iterable<T> source) {
+		List<T> result = new ArrayList<>();
+		Spliterator<T> spliterator = source.spliterator();
+		while (spliterator.tryAdvance(result::add))
+			;
+		return result;
+	}
+
+	static <T> List<T> push(Iterable<T> source) {
+		List<T> result = new ArrayList<>();
+		source.spliterator().forEachRemaining(result::add);
+		return result;
+	}
+
+	@Test
+	public void testSpliterator() {
+		List<Iterable<Integer>> sources = List.of(
+			map(i -> i * 2, range(0, 5)),
+			filter(i -> i % 3 == 0, range(0, 10)),
+			concat(range(0, 2), range(0, 0), list(5, 6), range(9, 10)),
+			flatMap(i -> range(0, i), range(0, 4)),
+			flatMapArray(i -> array(Integer[]::new, range(0, i)), range(0, 4)),
+			flatMapList(i -> arrayList(range(0, i)), range(0, 4)),
+			mapMulti((Integer i, Consumer<Integer> emit) -> { if (i % 2 == 0) emit.accept(i); }, range(0, 8)),
+			skip(2, range(0, 5)),
+			limit(3, filter(i -> i % 2 == 0, range(0, 100))),
+			acumulate(0, Integer::sum, range(0, 5)),
+			map((a, b) -> a * b, range(0, 10), list(3, 4, 5)),
+			codePoints("a𩸽c"));
+		for (Iterable<Integer> source : sources) {
+			assertEquals(arrayList(source), pull(source));
+			assertEquals(arrayList(source), push(source));
+		}
+	}
+
+	@Test
+	public void testShortCircuit() {
+		var counter = new Object() { int count = 0; };
+		Iterable<Integer> source = map(i -> { ++counter.count; return i; }, range(0, 100));
+		assertTrue(anyMatch(i -> i == 3, source));
+		assertEquals(4, counter.count);
+		counter.count = 0;
+		assertFalse(allMatch(i -> i < 5, filter(i -> i % 2 == 0, source)));
+		assertEquals(7, counter.count);
+		counter.count = 0;
+		assertFalse(isEmpty(source));
+		assertEquals(1, counter.count);
+	}
+
+	static long size(Iterable<?> source) {
+		return source.spliterator().getExactSizeIfKnown();
+	}
+
+	@Test
+	public void testExactSize() {
+		assertEquals(5, size(range(0, 5)));
+		assertEquals(6, size(rangeClosed(0, 5)));
+		assertEquals(3, size(range(0, 5, 2)));
+		assertEquals(5, size(map(i -> i * 2, range(0, 5))));
+		assertEquals(3, size(limit(3, range(0, 5))));
+		assertEquals(5, size(limit(9, range(0, 5))));
+		assertEquals(2, size(skip(3, range(0, 5))));
+		assertEquals(0, size(skip(9, range(0, 5))));
+		assertEquals(7, size(concat(range(0, 5), list(1, 2))));
+		assertEquals(5, size(acumulate(0, Integer::sum, range(0, 5))));
+		assertEquals(-1, size(filter(i -> true, range(0, 5))));
+		assertEquals(-1, size(concat(range(0, 5), filter(i -> true, range(0, 5)))));
+		assertEquals(-1, size(flatMap(i -> range(0, i), range(0, 5))));
+	}
+
+	@Test
+	public void testPresizedCollectors() {
+		assertEquals(arrayList(range(0, 1000)), arrayList(map(i -> i, range(0, 1000))));
+		assertArrayEquals(new int[] {0, 2, 4}, array(map(i -> i * 2, range(0, 3))));
+		assertArrayEquals(new int[] {0, 2, 4}, array(filter(i -> i % 2 == 0, list(0, 1, 2, 3, 4))));
+		assertArrayEquals(new int[] {}, array(map(i -> i, range(0, 0))));
+		assertArrayEquals(new Integer[] {1, 2, 3, 4}, array(Integer[]::new, concat(list(1, 2), range(3, 5))));
+		assertArrayEquals(new Integer[] {1, 3}, array(Integer[]::new, filter(i -> i % 2 == 1, range(0, 5))));
+		assertEquals(Set.of(0, 1, 2), hashSet(map(i -> i % 3, range(0, 100))));
+		assertEquals(Map.of(0, 0, 1, 2), hashMap(i -> i, i -> i * 2, range(0, 2)));
+		assertArrayEquals(new int[] {0, 1, 2}, IntIterables.array(IntIterables.map(i -> i, range(0, 3))));
+	}
+
+	@Test
+	public void testCharacteristics() {
+		Spliterator<Integer> r = range(0, 10).spliterator();
+		assertTrue(r.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.ORDERED
+			| Spliterator.DISTINCT | Spliterator.SORTED));
+		assertEquals(null, r.getComparator());
+		assertFalse(range(10, 0, -1).spliterator().hasCharacteristics(Spliterator.SORTED));
+		Spliterator<Integer> f = filter(i -> i % 2 == 0, range(0, 10)).spliterator();
+		assertTrue(f.hasCharacteristics(Spliterator.SORTED | Spliterator.DISTINCT));
+		assertFalse(f.hasCharacteristics(Spliterator.SIZED));
+		assertEquals(null, f.getComparator());
+		Spliterator<Integer> m = map(i -> i % 2, range(0, 10)).spliterator();
+		assertFalse(m.hasCharacteristics(Spliterator.SORTED));
+		assertFalse(m.hasCharacteristics(Spliterator.DISTINCT));
+		assertTrue(m.hasCharacteristics(Spliterator.SIZED | Spliterator.ORDERED));
+		assertTrue(limit(3, range(0, 10)).spliterator().hasCharacteristics(Spliterator.SORTED | Spliterator.SUBSIZED));
+		assertTrue(concat(range(0, 3), list(1, 2)).spliterator().hasCharacteristics(Spliterator.SUBSIZED | Spliterator.ORDERED));
+	}
+
+	@Test
+	public void testSplit() {
+		Spliterator<Integer> s = limit(10, skip(5, range(0, 1000))).spliterator();
+		Spliterator<Integer> prefix = s.trySplit();
+		List<Integer> all = new ArrayList<>();
+		prefix.forEachRemaining(all::add);
+		s.forEachRemaining(all::add);
+		assertEquals(arrayList(range(5, 15)), all);
+		Spliterator<Integer> c = concat(range(0, 3), range(3, 6), range(6, 9), range(9, 12)).spliterator();
+		assertEquals(6, c.trySplit().getExactSizeIfKnown());
+		assertEquals(6, c.getExactSizeIfKnown());
+	}
+
+	@Test
+	public void testStream() {
+		assertEquals(List.of(0, 2, 4), stream(map(i -> i * 2, range(0, 3))).toList());
+		assertEquals(arrayList(filter(i -> i % 3 == 0, range(0, 100_000))),
+			parallelStream(filter(i -> i % 3 == 0, range(0, 100_000))).toList());
+		assertEquals(arrayList(range(100, 200)),
+			parallelStream(limit(100, skip(100, range(0, 100_000)))).toList());
+		assertEquals(4950, IntIterables.stream(range(0, 100)).sum());
+		Iterable<Integer> again = iterable(() -> Stream.of(1, 2));
+		assertEquals(List.of(1, 2), arrayList(again));
+		assertEquals(List.of(1, 2), arrayList(again));
+		assertEquals(List.of("0", "1"), stream(IntIterables.mapToObj(Integer::toString, range(0, 2))).toList());
+	}
+
+	@Test
+	public void testTopK() {
+		List<Integer> data = list(5, 3, 9, 1, 7, 3, 8);
+		assertEquals(List.of(1, 3, 3), topK(3, data));
+		assertEquals(List.of(9, 8, 7), topK(3, desc(), data));
+		assertEquals(List.of(7, 8, 9), bottomK(3, data));
+		assertEquals(sort(data), topK(100, data));
+		assertEquals(List.of(), topK(0, data));
+		assertEquals(List.of(), bottomK(3, range(0, 0)));
+	}
+
+	@Test
+	public void testTopKStable() {
+		record R(int key, int seq) {}
+		java.util.Random random = new java.util.Random(1);
+		List<R> data = arrayList(map(i -> new R(random.nextInt(10), i), range(0, 1000)));
+		List<R> sorted = sort(asc(R::key), data);
+		for (int k : new int[] {1, 5, 50, 999, 1000}) {
+			assertEquals(sorted.subList(0, k), topK(k, asc(R::key), data));
+			assertEquals(sorted.subList(1000 - k, 1000), bottomK(k, asc(R::key), data));
+		}
+		assertEquals(sorted, arrayList(sorted(asc(R::key), data)));
+	}
+
+	@Test
+	public void testSorted() {
+		assertEquals(List.of(0, 1, 2, 3, 4), arrayList(sorted(list(2, 0, 1, 4, 3))));
+		assertEquals(List.of(4, 3), arrayList(limit(2, sorted(desc(), list(2, 0, 1, 4, 3)))));
+		assertEquals(List.of(), arrayList(sorted(range(0, 0))));
+		Iterable<Integer> s = sorted(list(2, 1));
+		assertEquals(List.of(1, 2), arrayList(s));
+		assertEquals(List.of(1, 2), arrayList(s));
+	}
+
+	@Test
+	public void testStatisticsStable() {
+		Statistics s = new Statistics();
+		for (int i = 0; i < 1_000_000; ++i)
+			s.add(1e9 + (i % 2));
+		assertEquals(1e9 + 0.5, s.mean(), 1e-6);
+		assertEquals(0.25, s.variance(), 1e-6);
+		assertEquals(0.25 * 1_000_000 / 999_999, s.sampleVariance(), 1e-6);
+		assertEquals(0.5, s.standardDeviation(), 1e-6);
+	}
+
+	@Test
+	public void testStatisticsMerge() {
+		Statistics all = statistics(range(-50, 1000));
+		Statistics merged = statistics(range(-50, 10))
+			.merge(new Statistics())
+			.merge(statistics(range(10, 11)))
+			.merge(statistics(range(11, 1000)));
+		assertEquals(all.count(), merged.count());
+		assertEquals(all.sum(), merged.sum(), 1e-9);
+		assertEquals(all.mean(), merged.mean(), 1e-9);
+		assertEquals(all.variance(), merged.variance(), 1e-6);
+		assertEquals(-50, merged.min(), 0.0);
+		assertEquals(999, merged.max(), 0.0);
+		Statistics empty = new Statistics();
+		assertEquals(0, empty.mean(), 0.0);
+		assertEquals(Double.POSITIVE_INFINITY, empty.min(), 0.0);
+		assertEquals(all.variance(), new Statistics().merge(all).variance(), 0.0);
+	}
+
+	@Test
+	public void testChunk() {
+		Iterable<List<Integer>> chunks = chunk(2, list(1, 2, 3, 4, 5));
+		assertEquals(List.of(List.of(1, 2), List.of(3, 4), List.of(5)), arrayList(chunks));
+		assertEquals(List.of(List.of(1, 2), List.of(3, 4), List.of(5)), pull(chunks));
+		assertEquals(3, size(chunks));
+		assertEquals(List.of(List.of(0, 1, 2), List.of(3, 4, 5)), arrayList(chunk(3, range(0, 6))));
+		assertEquals(List.of(), arrayList(chunk(3, list())));
+		assertEquals(List.of(List.of(0, 1), List.of(2, 3)), arrayList(limit(2, chunk(2, range(0, 1000)))));
+	}
+
+	@Test
+	public void testWindow() {
+		assertEquals(List.of(List.of(1, 2, 3), List.of(2, 3, 4), List.of(3, 4, 5)),
+			arrayList(window(3, 1, list(1, 2, 3, 4, 5))));
+		assertEquals(List.of(List.of(1, 2), List.of(4, 5)), arrayList(window(2, 3, list(1, 2, 3, 4, 5))));
+		assertEquals(List.of(List.of(1, 2), List.of(3, 4)), pull(window(2, 2, list(1, 2, 3, 4, 5))));
+		assertEquals(List.of(), arrayList(window(6, 1, list(1, 2, 3, 4, 5))));
+	}
+
+	@Test
+	public void testBatch() {
+		List<Integer> sizes = new ArrayList<>();
+		List<Integer> all = new ArrayList<>();
+		forEachBatch(4, batch -> { sizes.add(batch.size()); all.addAll(batch); }, range(0, 10));
+		assertEquals(List.of(4, 4, 2), sizes);
+		assertEquals(arrayList(range(0, 10)), all);
+		assertEquals(List.of(3, 7, 11, 15, 9), arrayList(mapBatch(2, batch -> List.of(reduce(Integer::sum, batch)), range(1, 10))));
+	}
+
+	@Test
+	public void testCache() {
+		var counter = new Object() { int count = 0; };
+		Iterable<Integer> cached = cache(map(i -> { ++counter.count; return i * i; }, range(0, 5)));
+		Iterator<Integer> a = cached.iterator(), b = cached.iterator();
+		assertEquals(0, (int)a.next());
+		assertEquals(1, (int)a.next());
+		assertEquals(0, (int)b.next());
+		assertEquals(2, counter.count);
+		assertEquals(List.of(0, 1, 4, 9, 16), arrayList(cached));
+		assertEquals(List.of(1, 4, 9, 16), pull(() -> b));
+		assertEquals(List.of(0, 1, 4, 9, 16), pull(cached));
+		assertEquals(5, counter.count);
+		assertEquals(5, size(cached));
+		assertEquals(30, (int)Parallel.common().reduce(Integer::sum, cached));
+		Iterable<Integer> once = cache(iterable(Stream.of(1, 2, 3)));
+		assertEquals(List.of(1, 2, 3), arrayList(once));
+		assertEquals(List.of(1, 2, 3), arrayList(once));
+	}
+
+	@Test
+	public void testCacheBounded() {
+		var counter = new Object() { int count = 0; };
+		Iterable<Integer> cached = cache(3, map(i -> { ++counter.count; return i; }, range(0, 5)));
+		Iterator<Integer> a = cached.iterator();
+		assertEquals(0, (int)a.next());
+		assertEquals(1, (int)a.next());
+		assertEquals(List.of(0, 1, 2, 3, 4), arrayList(cached));
+		assertEquals(List.of(2, 3, 4), pull(() -> a));
+		assertEquals(List.of(0, 1, 2, 3, 4), arrayList(cached));
+		assertEquals(10, counter.count);
+		assertEquals(List.of(3, 4), arrayList(skip(3, cached)));
+		assertEquals(12, counter.count);
+		counter.count = 0;
+		Iterable<Integer> fits = cache(5, map(i -> { ++counter.count; return i; }, range(0, 5)));
+		assertEquals(List.of(0, 1, 2, 3, 4), arrayList(fits));
+		assertEquals(List.of(0, 1, 2, 3, 4), arrayList(fits));
+		assertEquals(5, counter.count);
+		Iterable<Integer> exact = cache(3, iterable(Stream.of(1, 2, 3)));
+		assertEquals(List.of(1, 2, 3), arrayList(exact));
+		assertEquals(List.of(1, 2, 3), arrayList(exact));
+	}
+
+	@Test
+	public void testCacheConcurrent() throws InterruptedException {
+		Iterable<Integer> cached = cache(map(i -> i, range(0, 100_000)));
+		List<Thread> threads = new ArrayList<>();
+		List<Long> sums = Collections.synchronizedList(new ArrayList<>());
+		for (int t = 0; t < 4; ++t) {
+			Thread thread = new Thread(() -> {
+				long sum = 0;
+				for (int i : cached)
+					sum += i;
+				sums.add(sum);
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		assertEquals(List.of(4999950000L, 4999950000L, 4999950000L, 4999950000L), sums);
+	}
+
+	static int sleep(int millis, int value) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			throw new IllegalStateException(e);
+		}
+		return value;
+	}
+
+	@Test
+	public void testMapAsync() {
+		AtomicInteger running = new AtomicInteger(), maxRunning = new AtomicInteger();
+		Iterable<Integer> mapped = mapAsync(4, i -> {
+			maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+			int result = sleep(5 - i % 5, i * i);
+			running.decrementAndGet();
+			return result;
+		}, range(0, 40));
+		assertEquals(arrayList(map(i -> i * i, range(0, 40))), arrayList(mapped));
+		assertTrue(maxRunning.get() <= 4);
+		assertTrue(maxRunning.get() > 1);
+		assertEquals(hashSet(map(i -> i * i, range(0, 40))),
+			hashSet(mapAsyncUnordered(4, i -> sleep(5 - i % 5, i * i), range(0, 40))));
+	}
+
+	@Test
+	public void testMapAsyncUnorderedCompletionOrder() {
+		List<Integer> result = arrayList(mapAsyncUnordered(2, i -> sleep(i == 0 ? 200 : 1, i), range(0, 5)));
+		assertEquals(Set.of(0, 1, 2, 3, 4), new HashSet<>(result));
+		assertEquals(0, (int)result.get(4));
+	}
+
+	@Test
+	public void testMapAsyncEarlyStop() {
+		AtomicInteger started = new AtomicInteger();
+		Iterable<Integer> mapped = mapAsync(3, i -> { started.incrementAndGet(); return i; }, range(0, 1000));
+		assertEquals(List.of(0, 1), arrayList(limit(2, mapped)));
+		assertTrue(started.get() <= 2 + 3);
+		assertTrue(anyMatch(i -> i == 1, mapped));
+		Iterator<Integer> iterator = mapAsync(2, i -> sleep(10_000, i), range(0, 10)).iterator();
+		assertTrue(iterator.hasNext());
+		((AsyncMapIterator<?, ?>)iterator).close();
+		assertFalse(iterator.hasNext());
+	}
+
+	@Test(expected = ArithmeticException.class)
+	public void testMapAsyncFailure() {
+		arrayList(mapAsync(2, i -> 10 / i, range(-2, 3)));
+	}
+
+	@Test
+	public void testGroupBy() {
+		List<String> words = List.of("a", "bb", "c", "dd", "eee");
+		assertEquals(Map.of(1, List.of("a", "c"), 2, List.of("bb", "dd"), 3, List.of("eee")),
+			groupBy(String::length, words));
+		assertEquals(Map.of(1, "ac", 2, "bbdd", 3, "eee"), groupBy(String::length, "", (a, w) -> a + w, words));
+		assertEquals(Map.of(1, 2L, 2, 2L, 3, 1L), groupBy(String::length, Collectors.counting(), words));
+		assertEquals(Map.of(1, 2, 2, 2, 3, 1), countBy(String::length, words));
+		assertEquals(Map.of(0, 334, 1, 333, 2, 333), Parallel.common().countBy(i -> i % 3, range(0, 1000)));
+		Map<Integer, List<Integer>> groups = Parallel.common().groupBy(i -> i % 3, range(0, 100_000));
+		assertEquals(arrayList(filter(i -> i % 3 == 1, range(0, 100_000))), groups.get(1));
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testGroupByNullReducer() {
+		groupBy(String::length, "", (a, w) -> null, List.of("a"));
+	}
+
+	@Test
+	public void testDistinct() {
+		Iterable<Integer> distinct = distinct(list(3, 1, 3, 2, 1, 4));
+		assertEquals(List.of(3, 1, 2, 4), arrayList(distinct));
+		assertEquals(List.of(3, 1, 2, 4), pull(distinct));
+		assertEquals(List.of(3, 1, 2, 4), arrayList(distinct));
+		assertTrue(distinct.spliterator().hasCharacteristics(Spliterator.DISTINCT));
+	}
+
+	record Order(int id, String customer) {}
+
+	@Test
+	public void testJoin() {
+		List<Order> orders = List.of(new Order(1, "A"), new Order(2, "B"), new Order(3, "A"), new Order(4, "Z"));
+		List<String[]> customers = List.of(new String[] {"A", "Alice"}, new String[] {"B", "Bob"}, new String[] {"A", "Ann"});
+		Iterable<String> joined = join(Order::customer, c -> c[0], (o, c) -> o.id() + c[1], orders, customers);
+		assertEquals(List.of("1Alice", "1Ann", "2Bob", "3Alice", "3Ann"), arrayList(joined));
+		assertEquals(List.of("1Alice", "1Ann", "2Bob", "3Alice", "3Ann"), arrayList(joined));
+		assertEquals(List.of("1Alice", "1Ann", "2Bob", "3Alice", "3Ann", "4null"),
+			arrayList(leftJoin(Order::customer, c -> c[0], (o, c) -> o.id() + (c == null ? "null" : c[1]), orders, customers)));
+		Map<String, CoGroup<Order, String[]>> groups = coGroup(Order::customer, c -> c[0], orders, customers);
+		assertEquals(List.of(new Order(1, "A"), new Order(3, "A")), groups.get("A").left());
+		assertEquals(2, groups.get("A").right().size());
+		assertEquals(List.of(), groups.get("Z").right());
+	}
+
+	@Test
+	public void testMergeSorted() {
+		assertEquals(List.of(1, 2, 3, 4, 5, 7), arrayList(mergeSorted(Comparator.naturalOrder(), list(1, 4, 7), list(2, 5), list(), list(3))));
+		assertEquals(List.of(), arrayList(mergeSorted(Comparator.<Integer>naturalOrder())));
+		Comparator<String> byLength = Comparator.comparing(String::length);
+		assertEquals(List.of("a", "b", "c", "dd", "ee"), arrayList(mergeSorted(byLength, List.of("a", "dd"), List.of("b", "c", "ee"))));
+		assertEquals(List.of(0, 0, 1, 2, 2, 3), arrayList(limit(6, mergeSorted(Comparator.naturalOrder(),
+			range(0, Integer.MAX_VALUE, 2), range(0, Integer.MAX_VALUE)))));
+	}
+
+	@Test
+	public void testExternalSortAbandoned() throws IOException, InterruptedException {
+		Path directory = Files.createTempDirectory("iterables");
+		try {
+			Iterable<Integer> sorted = externalSort(Comparator.naturalOrder(), 2, Serializer.INTEGER, directory, list(5, 3, 9, 1, 7, 2, 8, 4));
+			assertEquals(Optional.of(1), findFirst(sorted));
+			assertEquals(List.of(1, 2), arrayList(limit(2, sorted)));
+			long files = -1;
+			for (int i = 0; i < 100 && files != 0; ++i) {
+				System.gc();
+				Thread.sleep(50);
+				try (var list = Files.list(directory)) {
+					files = list.count();
+				}
+			}
+			assertEquals(0, files);
+		} finally {
+			Files.delete(directory);
+		}
+	}
+
+	@Test
+	public void testExternalSort() throws IOException {
+		Path directory = Files.createTempDirectory("iterables");
+		try {
+			List<Integer> source = new ArrayList<>();
+			Random random = new Random(1);
+			for (int i = 0; i < 10_000; ++i)
+				source.add(random.nextInt(1000));
+			Iterable<Integer> sorted = externalSort(Comparator.naturalOrder(), 1000, Serializer.INTEGER, directory, source);
+			assertEquals(sort(source), arrayList(sorted));
+			try (var files = Files.list(directory)) {
+				assertEquals(0, files.count());
+			}
+			Iterator<Integer> iterator = sorted.iterator();
+			iterator.next();
+			try (var files = Files.list(directory)) {
+				assertEquals(10, files.count());
+			}
+			((ExternalSort<?>.SpilledIterator)iterator).close();
+			try (var files = Files.list(directory)) {
+				assertEquals(0, files.count());
+			}
+			List<String> words = List.of("pear", "fig", "apple", "kiwi", "date", "plum");
+			assertEquals(List.of("fig", "pear", "kiwi", "date", "plum", "apple"),
+				arrayList(externalSort(Comparator.comparing(String::length), 2, Serializer.STRING, directory, words)));
+			assertEquals(List.of(1, 2, 3), arrayList(externalSort(Comparator.naturalOrder(), 10, Serializer.INTEGER, list(3, 1, 2))));
+			Iterable<Integer> multiPass = new ExternalSort<>(Comparator.naturalOrder(), 100, 3, Serializer.INTEGER, directory, source);
+			Iterator<Integer> merging = multiPass.iterator();
+			try (var files = Files.list(directory)) {
+				assertTrue(files.count() <= 3);
+			}
+			assertEquals(sort(source), pull(() -> merging));
+			try (var files = Files.list(directory)) {
+				assertEquals(0, files.count());
+			}
+			assertEquals(List.of("fig", "pear", "kiwi", "date", "plum", "apple"),
+				arrayList(new ExternalSort<>(Comparator.comparing(String::length), 1, 2, Serializer.STRING, directory, words)));
+		} finally {
+			Files.delete(directory);
+		}
+	}
 }
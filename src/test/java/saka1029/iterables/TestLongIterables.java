@@ -0,0 +1,29 @@
+package saka1029.iterables;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static saka1029.iterables.LongIterables.*;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestLongIterables {
+
+	@Test
+	public void testRange() {
+		assertArrayEquals(new long[] {2, 3, 4}, array(range(2, 5)));
+		assertArrayEquals(new long[] {2, 3, 4, 5}, array(rangeClosed(2, 5)));
+		assertArrayEquals(new long[] {1, 2}, array(longs(List.of(1L, 2L))));
+	}
+
+	@Test
+	public void testPipeline() {
+		assertArrayEquals(new long[] {20, 40},
+			array(limit(2, map(i -> i * 10, filter(i -> i % 2 == 0, skip(1, range(0, 10)))))));
+		assertEquals(3_000_000_000L, sum(of(1_000_000_000L, 2_000_000_000L)));
+		assertEquals(5, count(range(0, 5)));
+		assertEquals(24, reduce((a, b) -> a * b, rangeClosed(1, 4)));
+		assertEquals(10, reduce(0, Long::sum, range(0, 5)));
+	}
+}
@@ -0,0 +1,81 @@
+package saka1029.iterables;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static saka1029.iterables.Iterables.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+
+import saka1029.iterables.Metrics.StageMetrics;
+
+public class TestMetrics {
+
+	@Test
+	public void testProbe() {
+		Metrics m = new Metrics(1);
+		Iterable<String> pipeline = m.probe("limit", limit(10,
+			m.probe("filter", filter(s -> s.endsWith("0"),
+				m.probe("map", map(i -> "x" + i, m.probe("source", range(0, 1000))))))));
+		assertEquals(10, count(pipeline));
+		List<StageMetrics> snapshot = m.snapshot();
+		assertEquals(List.of("source", "map", "filter", "limit"), arrayList(map(StageMetrics::name, snapshot)));
+		assertEquals(91, snapshot.get(0).elements());
+		assertEquals(91, snapshot.get(1).elements());
+		assertEquals(10, snapshot.get(2).elements());
+		assertEquals(10, snapshot.get(3).elements());
+		assertTrue(Double.isNaN(snapshot.get(0).selectivity()));
+		assertEquals(10.0 / 91, snapshot.get(2).selectivity(), 1e-9);
+		assertTrue(snapshot.get(3).inclusiveNanos() >= snapshot.get(0).inclusiveNanos());
+		m.reset();
+		assertEquals(0, m.snapshot().get(0).elements());
+	}
+
+	@Test
+	public void testParallel() {
+		Metrics m = new Metrics();
+		Iterable<Integer> pipeline = m.probe("filter", filter(i -> i % 2 == 0, m.probe("source", range(0, 100_000))));
+		assertEquals(50_000, Parallel.common().count(pipeline));
+		assertEquals(100_000, m.snapshot().get(0).elements());
+		assertEquals(0.5, m.snapshot().get(1).selectivity(), 0.0);
+	}
+
+	@Test
+	public void testStageEventOnce() throws IOException {
+		Path file = Files.createTempFile("iterables", ".jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable(Metrics.StageEvent.class);
+			recording.start();
+			Iterator<Integer> iterator = new Metrics().probe("source", range(0, 3)).iterator();
+			while (iterator.hasNext())
+				iterator.next();
+			assertFalse(iterator.hasNext());
+			assertFalse(iterator.hasNext());
+			recording.stop();
+			recording.dump(file);
+			long events = RecordingFile.readAllEvents(file).stream()
+				.filter(e -> e.getEventType().getName().equals("saka1029.iterables.Stage"))
+				.count();
+			assertEquals(1, events);
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void testDisabled() {
+		Iterable<Integer> source = range(0, 10);
+		assertSame(source, Metrics.disabled().probe("source", source));
+		assertEquals(List.of(), Metrics.disabled().snapshot());
+	}
+}
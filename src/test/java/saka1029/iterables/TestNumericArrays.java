@@ -0,0 +1,82 @@
+package saka1029.iterables;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static saka1029.iterables.NumericArrays.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import saka1029.iterables.Iterables.Statistics;
+
+public class TestNumericArrays {
+
+	@Test
+	public void testSum() {
+		int[] ints = {Integer.MAX_VALUE, Integer.MAX_VALUE, 1, 2, 3};
+		assertEquals(2L * Integer.MAX_VALUE + 6, sum(ints));
+		assertEquals(3, sum(ints, 2, 4));
+		assertEquals(0, sum(new int[0]));
+		assertEquals(15L, sum(new long[] {1, 2, 3, 4, 5}));
+		assertEquals(1.5, sum(new double[] {0.5, 0.25, 0.25, 0.25, 0.25}), 0.0);
+	}
+
+	@Test
+	public void testMinMax() {
+		int[] ints = {5, -3, 7, 0, 9, -8, 2};
+		assertEquals(-8, min(ints));
+		assertEquals(9, max(ints));
+		assertEquals(-3, min(ints, 0, 4));
+		assertEquals(7L, max(new long[] {7}));
+		assertEquals(-1.5, min(new double[] {0, -1.5, 3, 2, 1}), 0.0);
+		assertEquals(Double.NaN, max(new double[] {0, Double.NaN, 1}), 0.0);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testMinEmpty() {
+		min(new int[0]);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testRange() {
+		sum(new int[3], 1, 4);
+	}
+
+	@Test
+	public void testStatistics() {
+		Random random = new Random(1);
+		double[] doubles = new double[10_003];
+		for (int i = 0; i < doubles.length; ++i)
+			doubles[i] = 1e9 + random.nextGaussian();
+		Statistics expected = new Statistics();
+		for (double d : doubles)
+			expected.add(d);
+		Statistics actual = statistics(doubles);
+		assertEquals(expected.count(), actual.count());
+		assertEquals(expected.mean(), actual.mean(), 1e-4);
+		assertEquals(expected.variance(), actual.variance(), 1e-6);
+		assertEquals(expected.min(), actual.min(), 0.0);
+		assertEquals(expected.max(), actual.max(), 0.0);
+		Statistics ints = statistics(new int[] {1, 2, 3, 4});
+		assertEquals(2.5, ints.mean(), 0.0);
+		assertEquals(1.25, ints.variance(), 1e-12);
+		assertEquals(10.0, statistics(new long[] {1, 2, 3, 4}).sum(), 0.0);
+		assertEquals(0, statistics(new double[0]).count());
+	}
+
+	@Test
+	public void testCountAndMap() {
+		int[] ints = {1, 2, 3, 4, 5};
+		assertEquals(2, count((int i) -> i % 2 == 0, ints));
+		assertEquals(1, count((long l) -> l > 4, new long[] {1, 5}));
+		assertEquals(1, count((double d) -> d < 0, new double[] {-1, 5}));
+		assertArrayEquals(new int[] {2, 4, 6, 8, 10}, map((int i) -> i * 2, ints));
+		map((int i) -> -i, ints, ints);
+		assertArrayEquals(new int[] {-1, -2, -3, -4, -5}, ints);
+		map((int i) -> i * 10, ints, 1, 3, ints);
+		assertArrayEquals(new int[] {-1, -20, -30, -4, -5}, ints);
+		assertArrayEquals(new long[] {0, 4, 0}, map((long l) -> l * 2, new long[] {1, 2, 3}, 1, 2, new long[3]));
+		assertArrayEquals(new double[] {0.5}, map((double d) -> d / 2, new double[] {1}), 0.0);
+	}
+}
@@ -0,0 +1,95 @@
+package saka1029.iterables;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static saka1029.iterables.Iterables.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+public class TestParallel {
+
+	static final Parallel P = Parallel.common();
+
+	@Test
+	public void testReduce() {
+		assertEquals(499999500000L, (long)P.reduce(0L, (a, b) -> a + b, Long::sum, range(0, 1_000_000)));
+		assertEquals(45, (int)P.reduce(Integer::sum, rangeClosed(1, 9)));
+		assertEquals(120, (int)P.reduce((a, b) -> a * b, rangeClosed(1, 5)));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testReduceEmpty() {
+		P.reduce(Integer::sum, range(0, 0));
+	}
+
+	@Test
+	public void testCountSum() {
+		assertEquals(1_000_000, P.count(range(0, 1_000_000)));
+		assertEquals(500_000, P.count(filter(i -> i % 2 == 0, range(0, 1_000_000))));
+		assertEquals(sum(map(i -> i * 3, range(0, 100_000))), P.sum(map(i -> i * 3, range(0, 100_000))));
+		assertEquals(sum(range(0, 100_000)), P.sum(IntIterables.range(0, 100_000)));
+		assertEquals(55, P.sum(range(1, 11, 1)));
+	}
+
+	@Test
+	public void testMatch() {
+		assertTrue(P.anyMatch(i -> i == 999_999, range(0, 1_000_000)));
+		assertFalse(P.anyMatch(i -> i < 0, range(0, 1_000_000)));
+		assertTrue(P.allMatch(i -> i >= 0, range(0, 1_000_000)));
+		assertFalse(P.allMatch(i -> i < 500_000, range(0, 1_000_000)));
+	}
+
+	@Test
+	public void testFindAny() {
+		assertEquals(Optional.of(999_999), P.findAny(i -> i == 999_999, range(0, 1_000_000)));
+		assertTrue(P.findAny(i -> i % 1000 == 0, range(1, 1_000_000)).get() % 1000 == 0);
+		assertEquals(Optional.empty(), P.findAny(i -> i < 0, range(0, 1_000_000)));
+	}
+
+	@Test
+	public void testCollection() {
+		assertEquals(arrayList(range(0, 100_000)), P.arrayList(range(0, 100_000)));
+		assertEquals(List.of(0, 2, 4), P.arrayList(filter(i -> i % 2 == 0, list(0, 1, 2, 3, 4))));
+		assertEquals(Set.of(0, 1), P.collection(java.util.HashSet::new, map(i -> i % 2, range(0, 1000))));
+		assertEquals(Map.of(0, "0", 1, "1"), P.hashMap(i -> i, i -> "" + i, range(0, 2)));
+		assertEquals(List.of(3, 1, 2), P.arrayList(IntIterables.of(3, 1, 2)));
+		assertEquals(List.of(10, 7, 4, 1), P.arrayList(range(10, 0, -3)));
+		assertEquals(List.of(Integer.MAX_VALUE - 1, Integer.MAX_VALUE),
+			P.arrayList(rangeClosed(Integer.MAX_VALUE - 1, Integer.MAX_VALUE)));
+	}
+
+	@Test
+	public void testStatistics() {
+		Statistics s = P.statistics(range(0, 10));
+		assertEquals(10, s.count());
+		assertEquals(45, s.sum(), 0.1);
+		assertEquals(4.5, s.mean(), 1e-9);
+		assertEquals(8.25, s.variance(), 1e-9);
+		assertEquals(0, s.min(), 0.0);
+		assertEquals(9, s.max(), 0.0);
+	}
+
+	@Test
+	public void testPool() {
+		ForkJoinPool pool = new ForkJoinPool(3);
+		try {
+			assertEquals(4950, Parallel.of(pool).sum(range(0, 100)));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testUnsplittableSource() {
+		Iterable<Integer> plain = () -> range(0, 10_000).iterator();
+		assertEquals(sum(range(0, 10_000)), P.sum(plain));
+		assertEquals(arrayList(range(0, 10_000)), P.arrayList(map(i -> i, plain)));
+	}
+}
@@ -0,0 +1,64 @@
+package saka1029.iterables;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static saka1029.iterables.Iterables.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestQuantileSketch {
+
+	static List<Double> shuffled(int n) {
+		List<Double> list = new ArrayList<>(n);
+		for (int i = 0; i < n; ++i)
+			list.add((double)i);
+		Collections.shuffle(list, new Random(1));
+		return list;
+	}
+
+	@Test
+	public void testQuantile() {
+		int n = 1_000_000;
+		QuantileSketch sketch = quantileSketch(shuffled(n));
+		assertEquals(n, sketch.count());
+		assertEquals(0, sketch.min(), 0.0);
+		assertEquals(n - 1, sketch.max(), 0.0);
+		assertEquals(0, sketch.quantile(0), 0.0);
+		assertEquals(n - 1, sketch.quantile(1), 0.0);
+		for (double q : new double[] {0.01, 0.25, 0.5, 0.9, 0.99})
+			assertEquals(q * n, sketch.quantile(q), 0.02 * n);
+		double[] qs = sketch.quantiles(0.5, 0.99);
+		assertEquals(sketch.quantile(0.5), qs[0], 0.0);
+		assertEquals(sketch.quantile(0.99), qs[1], 0.0);
+		assertEquals(0.5, sketch.rank(n / 2), 0.02);
+		assertTrue(sketch.retained < 3 * QuantileSketch.DEFAULT_K + 64);
+	}
+
+	@Test
+	public void testSmall() {
+		QuantileSketch sketch = quantileSketch(range(1, 11));
+		assertEquals(10, sketch.count());
+		assertEquals(5, sketch.quantile(0.5), 0.0);
+		assertEquals(10, sketch.quantile(0.95), 0.0);
+		assertEquals(Double.NaN, new QuantileSketch().quantile(0.5), 0.0);
+	}
+
+	@Test
+	public void testMerge() {
+		int n = 200_000;
+		QuantileSketch a = quantileSketch(IntIterables.range(0, n));
+		QuantileSketch b = quantileSketch(IntIterables.range(n, 2 * n));
+		QuantileSketch merged = a.merge(b);
+		assertEquals(2 * n, merged.count());
+		assertEquals(n, merged.quantile(0.5), 0.02 * 2 * n);
+		assertEquals(2 * n - 1, merged.max(), 0.0);
+		QuantileSketch parallel = Parallel.common().quantileSketch(range(0, 2 * n));
+		assertEquals(2 * n, parallel.count());
+		assertEquals(0.9 * 2 * n, parallel.quantile(0.9), 0.02 * 2 * n);
+	}
+}
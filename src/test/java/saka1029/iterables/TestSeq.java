@@ -0,0 +1,77 @@
+package saka1029.iterables;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static saka1029.iterables.Iterables.*;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestSeq {
+
+	@Test
+	public void testMapFilter() {
+		assertEquals(List.of(0, 4, 16), Seq.of(range(0, 5)).filter(i -> i % 2 == 0).map(i -> i * i).arrayList());
+		assertEquals(List.of("1", "3"), Seq.of(range(0, 5)).filter(i -> i % 2 == 1).map(i -> "" + i).arrayList());
+	}
+
+	@Test
+	public void testLimitSkip() {
+		assertEquals(List.of(0, 1, 2), Seq.of(range(0, 100)).limit(3).arrayList());
+		assertEquals(List.of(), Seq.of(range(0, 100)).limit(0).arrayList());
+		assertEquals(List.of(3, 4), Seq.of(range(0, 5)).skip(3).arrayList());
+		assertEquals(List.of(4, 6, 8), Seq.of(range(0, 100)).filter(i -> i % 2 == 0).skip(2).limit(3).arrayList());
+		assertEquals(List.of(10, 20), Seq.of(range(0, 100)).limit(3).skip(1).map(i -> i * 10).arrayList());
+	}
+
+	@Test
+	public void testLimitStopsSource() {
+		var counter = new Object() { int count = 0; };
+		Iterable<Integer> source = map(i -> { ++counter.count; return i; }, range(0, 1000));
+		assertEquals(3, Seq.of(source).limit(3).count());
+		assertEquals(3, counter.count);
+	}
+
+	@Test
+	public void testFlatMap() {
+		assertEquals(List.of(0, 0, 1, 0, 1, 2),
+			Seq.of(range(1, 4)).flatMap(i -> range(0, i)).arrayList());
+		assertEquals(List.of(0, 0, 1, 0),
+			Seq.of(range(1, 100)).flatMap(i -> range(0, i)).limit(4).arrayList());
+		assertEquals(List.of(0, 1, 2, 3),
+			Seq.of(List.of(List.of(0, 1), List.of(2, 3))).flatMap(l -> l).arrayList());
+	}
+
+	@Test
+	public void testTerminals() {
+		assertEquals(45, (int)Seq.of(rangeClosed(1, 9)).reduce(0, Integer::sum));
+		assertEquals(120, (int)Seq.of(rangeClosed(1, 5)).reduce((a, b) -> a * b));
+		assertEquals(50, Seq.of(range(0, 100)).filter(i -> i % 2 == 0).count());
+		assertTrue(Seq.of(range(0, 100)).anyMatch(i -> i == 50));
+		assertFalse(Seq.of(range(0, 100)).anyMatch(i -> i < 0));
+		assertTrue(Seq.of(range(0, 100)).allMatch(i -> i >= 0));
+		assertFalse(Seq.of(range(0, 100)).allMatch(i -> i < 99));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testReduceEmpty() {
+		Seq.of(range(0, 10)).filter(i -> i < 0).reduce(Integer::sum);
+	}
+
+	@Test
+	public void testIterator() {
+		Seq<Integer> seq = Seq.of(range(0, 10)).filter(i -> i % 3 == 0).map(i -> i + 1);
+		assertEquals(List.of(1, 4, 7, 10), arrayList(seq));
+		assertEquals(List.of(1, 4, 7, 10), arrayList(seq));
+		Iterator<Integer> it = Seq.of(range(1, 3)).flatMap(i -> range(0, i)).iterator();
+		assertEquals(0, (int)it.next());
+		assertEquals(0, (int)it.next());
+		assertEquals(1, (int)it.next());
+		assertFalse(it.hasNext());
+		assertEquals(Arrays.asList("a", null), arrayList(Seq.of(Arrays.asList("a", null))));
+	}
+}
@@ -0,0 +1,113 @@
+package saka1029.iterables;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static saka1029.iterables.Iterables.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import saka1029.iterables.Iterables.Statistics;
+
+public class TestTee {
+
+	@Test
+	public void testForEach() {
+		var counter = new Object() { int reads = 0; };
+		Iterable<Integer> source = map(i -> { ++counter.reads; return i; }, range(0, 100));
+		Statistics statistics = new Statistics();
+		HyperLogLog distinct = new HyperLogLog();
+		List<Integer> list = new ArrayList<>();
+		Tee.forEach(List.<Consumer<Integer>>of(statistics::add, distinct::add, list::add), source);
+		assertEquals(100, counter.reads);
+		assertEquals(4950, statistics.sum(), 0.0);
+		assertEquals(100, distinct.cardinality());
+		assertEquals(arrayList(range(0, 100)), list);
+	}
+
+	@Test
+	public void testCollect() {
+		assertEquals(List.of(1, 2, 3), Tee.collect(Collectors.toList(), list(1, 2, 3)));
+		double average = Tee.teeing(Collectors.summingInt(i -> i), Collectors.counting(),
+			(s, c) -> (double)s / c, range(1, 11));
+		assertEquals(5.5, average, 0.0);
+	}
+
+	@Test
+	public void testBroadcast() {
+		var counter = new Object() { int reads = 0; };
+		Iterable<Integer> source = map(i -> { ++counter.reads; return i; }, range(0, 100_000));
+		Statistics statistics = new Statistics();
+		List<Integer> list = new ArrayList<>();
+		var slow = new Object() { long sum = 0; };
+		Tee.broadcast(List.<Consumer<Integer>>of(statistics::add, list::add, i -> {
+			if (i % 10_000 == 0)
+				Thread.yield();
+			slow.sum += i;
+		}), source);
+		assertEquals(100_000, counter.reads);
+		assertEquals(100_000, statistics.count());
+		assertEquals(arrayList(range(0, 100_000)), list);
+		assertEquals(4999950000L, slow.sum);
+	}
+
+	@Test
+	public void testBroadcastBackpressure() {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			var state = new Object() { volatile int consumed = 0; int maxLag = 0; };
+			Tee.broadcast(executor, 16, List.<Consumer<Integer>>of(i -> {
+				try {
+					Thread.sleep(0, 1000);
+				} catch (InterruptedException e) {
+					throw new IllegalStateException(e);
+				}
+				++state.consumed;
+			}), map(i -> {
+				state.maxLag = Math.max(state.maxLag, i - state.consumed);
+				return i;
+			}, range(0, 2000)));
+			assertEquals(2000, state.consumed);
+			assertTrue(state.maxLag <= 16 + 4 + 4);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test(expected = ArithmeticException.class)
+	public void testBroadcastFailure() {
+		List<Integer> list = new ArrayList<>();
+		Tee.broadcast(List.<Consumer<Integer>>of(list::add, i -> {
+			if (i == 5000)
+				throw new ArithmeticException();
+		}), range(0, 1_000_000));
+	}
+
+	@Test
+	public void testBroadcastRejected() throws InterruptedException {
+		ExecutorService executor = Executors.newFixedThreadPool(1);
+		var started = new Object() { int count = 0; };
+		try {
+			Tee.broadcast(r -> {
+				if (started.count++ > 0)
+					throw new RejectedExecutionException();
+				executor.execute(r);
+			}, 16, List.<Consumer<Integer>>of(i -> {}, i -> {}), range(0, 10));
+			fail();
+		} catch (RejectedExecutionException e) {
+			executor.shutdown();
+			assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
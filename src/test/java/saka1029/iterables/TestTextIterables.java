@@ -0,0 +1,98 @@
+package saka1029.iterables;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static saka1029.iterables.Iterables.*;
+import static saka1029.iterables.TextIterables.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.Spliterator;
+
+import org.junit.Test;
+
+import saka1029.iterables.TextIterables.Span;
+
+public class TestTextIterables {
+
+	static List<String> strings(Iterable<? extends CharSequence> source) {
+		return arrayList(map(CharSequence::toString, source));
+	}
+
+	@Test
+	public void testChars() {
+		assertArrayEquals(new int[] {'a', 0xd867, 0xde3d, 'c'}, IntIterables.array(chars("a𩸽c")));
+		assertEquals(Optional.of((int)'c'), nth(3, chars("a𩸽c")));
+		assertEquals(4, count(chars(new StringBuilder("a𩸽c"))));
+		StringBuilder sb = new StringBuilder("ab");
+		IntIterable mutable = chars(sb);
+		sb.append("cd");
+		assertEquals(4, count(mutable));
+		assertEquals(List.of((int)'c', (int)'d'), pull(skip(2, mutable)));
+		assertEquals(Optional.of((int)'d'), last(mutable));
+	}
+
+	@Test
+	public void testCodePoints() {
+		assertArrayEquals(new int[] {97, 171581, 99}, IntIterables.array(TextIterables.codePoints("a𩸽c")));
+		assertEquals(List.of(97, 171581, 99), pull(TextIterables.codePoints("a𩸽c")));
+		String text = "𩸽".repeat(10_000);
+		assertEquals(10_000, Parallel.common().count(TextIterables.codePoints(text)));
+		assertEquals(text, cpstring(TextIterables.codePoints(text)));
+	}
+
+	static <T> List<T> pull(Iterable<T> source) {
+		List<T> result = new ArrayList<>();
+		Spliterator<T> spliterator = source.spliterator();
+		while (spliterator.tryAdvance((T t) -> result.add(t)))
+			;
+		return result;
+	}
+
+	@Test
+	public void testSplit() {
+		assertEquals(List.of("a", "bc"), strings(split(Character::isWhitespace, " a  bc ")));
+		assertEquals(List.of("a", "𩸽", "c"), strings(split(cp -> cp == ',', "a,𩸽,,c")));
+		assertEquals(List.of(), strings(split(Character::isWhitespace, "   ")));
+		assertEquals(List.of(), strings(split(Character::isWhitespace, "")));
+		HashMap<Span, Integer> counts = countBy(w -> w, split(Character::isWhitespace, "to be or not to be"));
+		assertEquals(4, counts.size());
+		assertEquals(2, (int)counts.get(first(split(Character::isWhitespace, "be"))));
+	}
+
+	static Span first(Iterable<Span> source) {
+		return findFirst(source).get();
+	}
+
+	@Test
+	public void testSpan() {
+		Span span = first(skip(1, split(cp -> cp == ',', "x,hello,y")));
+		assertEquals("hello", span.toString());
+		assertEquals(2, span.start());
+		assertEquals("hello".hashCode(), span.hashCode());
+		assertTrue(span.contentEquals("hello"));
+		assertFalse(span.equals("hello"));
+		assertEquals("ell", span.subSequence(1, 4).toString());
+		assertEquals('o', span.charAt(4));
+	}
+
+	@Test
+	public void testNgrams() {
+		assertEquals(List.of("ab", "bc", "cd"), strings(ngrams(2, "abcd")));
+		assertEquals(List.of("a𩸽", "𩸽c"), strings(ngrams(2, "a𩸽c")));
+		assertEquals(List.of(), strings(ngrams(5, "abcd")));
+		assertEquals(List.of("abcd"), strings(ngrams(4, "abcd")));
+	}
+
+	@Test
+	public void testJoin() {
+		assertEquals("a, b, c", join(", ", List.of("a", "b", "c")));
+		assertEquals("to|be", join("|", split(Character::isWhitespace, " to be")));
+		assertEquals("", join(",", List.of()));
+		assertEquals("[0, 1, 2]", string("[", ", ", "]", range(0, 3)));
+	}
+}